@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Layout of the columns needed from a work sheet.
+ * 
+ * The position of each column is resolved from the header row. 
+ * When the header row contains at least one of the header names, it is used as is:
+ * a column whose header is not found is dropped, so its cells will be empty.
+ * When none of the header names are found, the default positions are used for all columns.
+ * Columns that are not needed can be skipped.
+ */
+class ColumnLayout {
+	private final static Logger LOG = LoggerFactory.getLogger(ColumnLayout.class);
+	
+	private final String[] names;
+	private final int[] columns;
+	private int[] slots;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param names header names of the needed columns
+	 * @param defaults default positions, in the same order as the names
+	 */
+	ColumnLayout(String[] names, int[] defaults) {
+		this.names = names;
+		this.columns = Arrays.copyOf(defaults, defaults.length);
+		index();
+	}
+	
+	/**
+	 * Normalize header name, ignoring case, spaces and punctuation
+	 * 
+	 * @param header header name
+	 * @return normalized name
+	 */
+	private static String normalize(String header) {
+		StringBuilder sb = new StringBuilder(header.length());
+		for (char c: header.toCharArray()) {
+			if (Character.isLetterOrDigit(c)) {
+				sb.append(Character.toLowerCase(c));
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Build lookup table from column position to slot
+	 */
+	private void index() {
+		int max = Arrays.stream(columns).max().orElse(-1);
+		slots = new int[max + 1];
+		Arrays.fill(slots, -1);
+		for (int i = 0; i < columns.length; i++) {
+			if (columns[i] >= 0) {
+				slots[columns[i]] = i;
+			}
+		}
+	}
+	
+	/**
+	 * Resolve the column positions from the header row
+	 * 
+	 * @param header values of the header row, null for empty cells
+	 */
+	void resolve(List<String> header) {
+		Map<String,Integer> pos = new HashMap<>();
+		for (int i = 0; i < header.size(); i++) {
+			String h = header.get(i);
+			if (h != null) {
+				pos.putIfAbsent(normalize(h), i);
+			}
+		}
+		int[] resolved = new int[names.length];
+		int found = 0;
+		for (int i = 0; i < names.length; i++) {
+			Integer col = pos.get(normalize(names[i]));
+			resolved[i] = (col != null) ? col : -1;
+			if (col != null) {
+				found++;
+			}
+		}
+		if (found == 0) {
+			LOG.warn("No known headers found, using default columns");
+			return;
+		}
+		for (int i = 0; i < names.length; i++) {
+			if (resolved[i] < 0) {
+				LOG.warn("Header " + names[i] + " not found, ignoring column");
+			}
+			columns[i] = resolved[i];
+		}
+		index();
+	}
+	
+	/**
+	 * Get number of needed columns
+	 * 
+	 * @return number of columns
+	 */
+	int size() {
+		return columns.length;
+	}
+	
+	/**
+	 * Get the position of the column in a given slot
+	 * 
+	 * @param slot slot number
+	 * @return column position or -1 when the column is not available
+	 */
+	int getColumn(int slot) {
+		return columns[slot];
+	}
+	
+	/**
+	 * Get the slot for a column position
+	 * 
+	 * @param column column position
+	 * @return slot number or -1 when the column is not needed
+	 */
+	int getSlot(int column) {
+		return (column >= 0 && column < slots.length) ? slots[column] : -1;
+	}
+}
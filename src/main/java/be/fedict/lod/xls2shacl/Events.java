@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the conversion phases.
+ * 
+ * Events are only recorded when a recording is running, e.g. when started with
+ * -XX:StartFlightRecording (requires Java 8u262 or newer).
+ */
+final class Events {
+	private final static String CATEGORY = "xls2shacl";
+	
+	/**
+	 * Opening the workbook or reading a work sheet
+	 */
+	@Name("be.fedict.lod.xls2shacl.Read")
+	@Label("Read")
+	@Description("Opening the workbook or reading a work sheet")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class ReadEvent extends Event {
+		@Label("Phase")
+		String phase;
+		
+		@Label("Sheet")
+		String sheet;
+		
+		@Label("Rows")
+		int rows;
+		
+		@Label("Rejected rows")
+		int rejected;
+	}
+	
+	/**
+	 * Generating the SHACL/OWL triples for a context
+	 */
+	@Name("be.fedict.lod.xls2shacl.Generate")
+	@Label("Generate")
+	@Description("Generating the triples of a context")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class GenerateEvent extends Event {
+		@Label("Writer")
+		String writer;
+		
+		@Label("Context")
+		String context;
+		
+		@Label("Input statements")
+		int input;
+		
+		@Label("Statements")
+		int statements;
+	}
+	
+	/**
+	 * Serializing the triples of a context
+	 */
+	@Name("be.fedict.lod.xls2shacl.Serialize")
+	@Label("Serialize")
+	@Description("Serializing the triples of a context")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class SerializeEvent extends Event {
+		@Label("Context")
+		String context;
+		
+		@Label("Target")
+		String target;
+		
+		@Label("Statements")
+		int statements;
+		
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+	}
+	
+	/**
+	 * Writing a file to disk
+	 */
+	@Name("be.fedict.lod.xls2shacl.Write")
+	@Label("Write")
+	@Description("Writing a file to disk")
+	@Category(CATEGORY)
+	@StackTrace(false)
+	static class WriteEvent extends Event {
+		@Label("File")
+		String file;
+		
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+	}
+	
+	/**
+	 * Constructor
+	 */
+	private Events() {
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+
+/**
+ * Compact index of the data triples that are relevant to a set of compiled shapes.
+ * 
+ * Only two things are kept: the relevant classes of each typed node, and the candidate 
+ * (focus node, path, value) triples that could violate a check once all types are known.
+ * Values that already pass every datatype check of their path are dropped while parsing.
+ * Sets of classes are shared between nodes, since most nodes have the same few types.
+ * The index can be filled by multiple threads at once.
+ */
+class FocusIndex {
+	private final Map<IRI,Set<IRI>> expand;
+	private final Map<IRI,IRI> paths;
+	private final Map<IRI,IRI> datatypes;
+	
+	private final Map<Resource,Set<IRI>> types = new ConcurrentHashMap<>();
+	private final Map<Set<IRI>,Set<IRI>> pool = new ConcurrentHashMap<>();
+	
+	/**
+	 * Triple that could violate a check
+	 */
+	static class Candidate {
+		private final Resource focus;
+		private final IRI path;
+		private final Value value;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param focus focus node
+		 * @param path property path
+		 * @param value value
+		 */
+		Candidate(Resource focus, IRI path, Value value) {
+			this.focus = focus;
+			this.path = path;
+			this.value = value;
+		}
+		
+		/**
+		 * Get the focus node
+		 * 
+		 * @return subject
+		 */
+		Resource getFocus() {
+			return focus;
+		}
+		
+		/**
+		 * Get the path
+		 * 
+		 * @return property
+		 */
+		IRI getPath() {
+			return path;
+		}
+		
+		/**
+		 * Get the value
+		 * 
+		 * @return object
+		 */
+		Value getValue() {
+			return value;
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param expand map of a class to the relevant classes its instances belong to
+	 * @param paths properties used as path
+	 * @param datatypes paths only having datatype checks, all for the same datatype
+	 */
+	FocusIndex(Map<IRI,Set<IRI>> expand, Set<IRI> paths, Map<IRI,IRI> datatypes) {
+		this.expand = new ConcurrentHashMap<>();
+		for (Map.Entry<IRI,Set<IRI>> e: expand.entrySet()) {
+			this.expand.put(e.getKey(), intern(e.getValue()));
+		}
+		// use the same IRI object for every candidate with the same path
+		this.paths = new ConcurrentHashMap<>();
+		for (IRI path: paths) {
+			this.paths.put(path, path);
+		}
+		this.datatypes = datatypes;
+	}
+	
+	/**
+	 * Get the shared copy of a set of classes
+	 * 
+	 * @param classes set of classes
+	 * @return shared, unmodifiable set
+	 */
+	private Set<IRI> intern(Set<IRI> classes) {
+		Set<IRI> shared = pool.get(classes);
+		if (shared != null) {
+			return shared;
+		}
+		shared = Collections.unmodifiableSet(new HashSet<>(classes));
+		Set<IRI> prev = pool.putIfAbsent(shared, shared);
+		return (prev != null) ? prev : shared;
+	}
+	
+	/**
+	 * Combine two shared sets of classes
+	 * 
+	 * @param a set of classes
+	 * @param b set of classes
+	 * @return shared set
+	 */
+	private Set<IRI> union(Set<IRI> a, Set<IRI> b) {
+		if (a.containsAll(b)) {
+			return a;
+		}
+		Set<IRI> u = new HashSet<>(a);
+		u.addAll(b);
+		return intern(u);
+	}
+	
+	/**
+	 * Add a statement, ignoring it when it is not used by any of the shapes
+	 * 
+	 * @param st statement
+	 * @return candidate to be checked later, or null
+	 */
+	Candidate add(Statement st) {
+		IRI pred = st.getPredicate();
+		Value obj = st.getObject();
+		
+		if (pred.equals(RDF.TYPE)) {
+			Set<IRI> classes = (obj instanceof IRI) ? expand.get(obj) : null;
+			if (classes != null) {
+				types.merge(st.getSubject(), classes, this::union);
+			}
+			return null;
+		}
+		IRI path = paths.get(pred);
+		if (path == null) {
+			return null;
+		}
+		IRI dt = datatypes.get(path);
+		if (dt != null && (obj instanceof Literal) && ((Literal) obj).getDatatype().equals(dt)) {
+			return null;
+		}
+		return new Candidate(st.getSubject(), path, obj);
+	}
+	
+	/**
+	 * Get the number of typed nodes
+	 * 
+	 * @return number of nodes
+	 */
+	int size() {
+		return types.size();
+	}
+	
+	/**
+	 * Get the relevant classes of a node, including superclasses
+	 * 
+	 * @param node subject
+	 * @return shared set of classes, possibly empty
+	 */
+	Set<IRI> getTypes(Value node) {
+		Set<IRI> t = types.get(node);
+		return (t != null) ? t : Collections.emptySet();
+	}
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+
+/**
+ * Normalize and validate IRIs from spreadsheet cells, without throwing exceptions.
+ * 
+ * Angle brackets are removed, CURIEs using a known prefix are expanded and
+ * root-relative values ("/ns/...") are resolved against a base.
+ * Results are cached, since the same IRIs are often used in many rows.
+ */
+public class IriNormalizer {
+	private final ValueFactory FAC = SimpleValueFactory.getInstance();
+	
+	private final String base;
+	private final Map<String,String> prefixes;
+	private final Map<String,Result> cache = new HashMap<>();
+	
+	/**
+	 * Normalized IRI or reason why the value was rejected
+	 */
+	public static class Result {
+		private final IRI iri;
+		private final String error;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param iri normalized IRI or null
+		 * @param error error message or null
+		 */
+		private Result(IRI iri, String error) {
+			this.iri = iri;
+			this.error = error;
+		}
+		
+		/**
+		 * Get normalized IRI
+		 * 
+		 * @return IRI or null when rejected
+		 */
+		public IRI getIRI() {
+			return iri;
+		}
+		
+		/**
+		 * Get the reason why the value was rejected
+		 * 
+		 * @return error message or null
+		 */
+		public String getError() {
+			return error;
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param base base for root-relative values
+	 * @param prefixes map of prefixes and namespaces
+	 */
+	public IriNormalizer(String base, Map<String,String> prefixes) {
+		this.base = base;
+		this.prefixes = prefixes;
+	}
+	
+	/**
+	 * Check if character is allowed in an IRI, see RFC 3987
+	 * 
+	 * @param c character
+	 * @return true if allowed
+	 */
+	private static boolean isAllowed(char c) {
+		if (c <= 0x20 || c == 0x7F) {
+			return false;
+		}
+		switch(c) {
+			case '<':
+			case '>':
+			case '"':
+			case '{':
+			case '}':
+			case '|':
+			case '\\':
+			case '^':
+			case '`':
+				return false;
+			default:
+				return true;
+		}
+	}
+	
+	/**
+	 * Get the length of the scheme, see RFC 3986
+	 * 
+	 * @param u string
+	 * @return position of the colon, or -1 when there is no valid scheme
+	 */
+	private static int schemeEnd(String u) {
+		if (u.isEmpty() || !((u.charAt(0) | 0x20) >= 'a' && (u.charAt(0) | 0x20) <= 'z')) {
+			return -1;
+		}
+		for (int i = 1; i < u.length(); i++) {
+			char c = u.charAt(i);
+			if (c == ':') {
+				return i;
+			}
+			if (! (Character.isLetterOrDigit(c) && c < 0x80) && c != '+' && c != '-' && c != '.') {
+				return -1;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Validate an absolute IRI
+	 * 
+	 * @param u string
+	 * @return error message or null when valid
+	 */
+	private static String validate(String u) {
+		int end = schemeEnd(u);
+		if (end < 0) {
+			return "No valid scheme";
+		}
+		if (end == u.length() - 1) {
+			return "Nothing after scheme";
+		}
+		for (int i = end + 1; i < u.length(); i++) {
+			if (! isAllowed(u.charAt(i))) {
+				return "Invalid character at position " + i;
+			}
+		}
+		String scheme = u.substring(0, end).toLowerCase();
+		if ((scheme.equals("http") || scheme.equals("https")) 
+				&& (! u.startsWith("//", end + 1) || u.length() <= end + 3)) {
+			return "No host";
+		}
+		return null;
+	}
+	
+	/**
+	 * Strip brackets, expand CURIE or resolve against base
+	 * 
+	 * @param raw value from the cell
+	 * @return expanded value
+	 */
+	private String expand(String raw) {
+		String u = raw.trim();
+		if (u.startsWith("<")) {
+			u = u.substring(1);
+		}
+		if (u.endsWith(">")) {
+			u = u.substring(0, u.length() - 1);
+		}
+		if (u.startsWith("/") && ! u.startsWith("//")) {
+			return base + u;
+		}
+		int colon = u.indexOf(':');
+		if (colon > 0 && ! u.startsWith("//", colon + 1)) {
+			String ns = prefixes.get(u.substring(0, colon));
+			if (ns != null) {
+				return ns + u.substring(colon + 1);
+			}
+		}
+		return u;
+	}
+	
+	/**
+	 * Normalize and validate a value
+	 * 
+	 * @param raw value from the cell
+	 * @return result, containing either an IRI or an error message
+	 */
+	public Result normalize(String raw) {
+		Result res = cache.get(raw);
+		if (res != null) {
+			return res;
+		}
+		String u = (raw == null) ? "" : expand(raw);
+		String error = u.isEmpty() ? "Empty" : validate(u);
+		res = (error == null) ? new Result(FAC.createIRI(u), null) 
+								: new Result(null, error);
+		cache.put(raw, res);
+		return res;
+	}
+}
@@ -25,9 +25,24 @@
  */
 package be.fedict.lod.xls2shacl;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
@@ -38,7 +53,14 @@ import org.apache.commons.cli.ParseException;
 import org.eclipse.rdf4j.model.IRI;
 
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.Rio;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -51,25 +73,45 @@ import org.slf4j.LoggerFactory;
 public class Main {
 	private final static Logger LOG = LoggerFactory.getLogger(Main.class);
 	
+	private final static int BUFFERS = 4;
+	
 	private final static Options OPTS = 
 			new Options().addRequiredOption("i", "input", true, "input XLS")
 						.addOption("s", "sheet", true, "name of the work sheet")
 						.addOption("m", "mappings", true, "name of the sheet containing mappings")
-						.addOption("o", "outdir", true, "output directory");
-			
+						.addOption("o", "outdir", true, "output directory")
+						.addOption("q", "quads", true, "write all graphs to one file, - for stdout")
+						.addOption("f", "format", true, "format of the quads file: trig or nquads")
+						.addOption("c", "cache", true, "cache directory")
+						.addOption("e", "errors", true, "file to write rejected rows to")
+						.addOption("x", "stream", false, "stream the XLSX instead of loading it");
+
+	private final static Options VALIDATE_OPTS = 
+			new Options().addRequiredOption("i", "input", true, "input XLS")
+						.addOption("s", "sheet", true, "name of the work sheet")
+						.addOption("m", "mappings", true, "name of the sheet containing mappings")
+						.addRequiredOption("d", "data", true, "N-Triples or Turtle data file")
+						.addOption("r", "report", true, "validation report file")
+						.addOption("t", "threads", true, "number of threads (N-Triples only)")
+						.addOption("c", "cache", true, "cache directory")
+						.addOption("e", "errors", true, "file to write rejected rows to")
+						.addOption("x", "stream", false, "stream the XLSX instead of loading it");
+	
 	/**
 	 * Parse command line arguments
 	 * 
+	 * @param opts command line options
+	 * @param cmd command to be shown in help message
 	 * @param args arguments
 	 * @return commandline object 
 	 */
-	private static CommandLine parseArgs(String[] args) {
+	private static CommandLine parseArgs(Options opts, String cmd, String[] args) {
 		try {
-			return new DefaultParser().parse(OPTS, args);
+			return new DefaultParser().parse(opts, args);
 		} catch (ParseException ex) {
 			LOG.error(ex.getMessage());
 			HelpFormatter help = new HelpFormatter();
-			help.printHelp("xls2shacl.jar", OPTS);
+			help.printHelp(cmd, opts);
 			return null;
 		}
 	}
@@ -85,13 +127,250 @@ public class Main {
 		System.exit(code);
 	}
 
+	/**
+	 * Get the number of threads, limited to the number of available processors
+	 * 
+	 * @param value value of the option
+	 * @return number of threads, or -1 when the value is not a positive integer
+	 */
+	private static int getThreads(String value) {
+		int threads;
+		try {
+			threads = Integer.parseInt(value.trim());
+		} catch (NumberFormatException nfe) {
+			return -1;
+		}
+		if (threads < 1) {
+			return -1;
+		}
+		int cores = Runtime.getRuntime().availableProcessors();
+		if (threads > cores) {
+			LOG.warn("Only " + cores + " processors available, using " + cores + " threads");
+			threads = cores;
+		}
+		return threads;
+	}
+	
+	/**
+	 * Get the output format for the quads file, based on the option or the file name
+	 * 
+	 * @param format name of the format or null
+	 * @param file name of the file
+	 * @return RDF format
+	 */
+	static RDFFormat getQuadsFormat(String format, String file) {
+		if (format != null) {
+			switch(format.toLowerCase()) {
+				case "nq":
+				case "nquads":
+					return RDFFormat.NQUADS;
+				case "trig":
+					return RDFFormat.TRIG;
+				default:
+					LOG.warn("Unknown format " + format + ", using TriG");
+					return RDFFormat.TRIG;
+			}
+		}
+		return Rio.getWriterFormatForFileName(file).filter(RDFFormat::supportsContexts)
+													.orElse(RDFFormat.TRIG);
+	}
+	
+	/**
+	 * Write the SHACL and OWL triples of all contexts as named graphs into one stream
+	 * 
+	 * @param os output stream
+	 * @param format TriG or N-Quads
+	 * @param model model
+	 */
+	static void writeQuads(OutputStream os, RDFFormat format, Model model) {
+		ShaclWriter shacl = new ShaclWriter();
+		OwlWriter owl = new OwlWriter();
+		
+		RDFHandler handler = Rio.createWriter(format, os);
+		handler.startRDF();
+		for (Namespace ns: shacl.getNamespaces()) {
+			handler.handleNamespace(ns.getPrefix(), ns.getName());
+		}
+		for(Resource context: model.contexts()) {
+			if (context != null) {
+				String name = ((IRI) context).getLocalName();
+				Model m = model.filter(null, null, null, context);
+				
+				shacl.writeGraph(handler, context, name, m);
+				owl.writeGraph(handler, context, name, m);
+			}
+		}
+		handler.endRDF();
+	}
+	
+	/**
+	 * Read the workbook and report the rows that could not be converted
+	 * 
+	 * @param fin input file
+	 * @param sheet name of the sheet with descriptions
+	 * @param mappings name of the sheet with mappings
+	 * @param errors file to write rejected rows to, or null
+	 * @param streaming stream the XLSX instead of loading the complete workbook
+	 * @return model
+	 */
+	private static Model readWorkbook(File fin, String sheet, String mappings, String errors, 
+																			boolean streaming) {
+		OntoReader reader = new OntoReader(streaming);
+		Model model = reader.read(fin, sheet, mappings);
+		
+		List<RejectedRow> rejected = reader.getRejected();
+		if (rejected.isEmpty()) {
+			return model;
+		}
+		LOG.warn("Rejected " + rejected.size() + " rows");
+		if (errors != null) {
+			try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(Paths.get(errors)))) {
+				w.println("sheet\trow\tvalue\treason");
+				for (RejectedRow row: rejected) {
+					w.println(row);
+				}
+			} catch (IOException ioe) {
+				LOG.error("Could not write rejected rows " + ioe.getMessage());
+			}
+		}
+		return model;
+	}
+	
+	/**
+	 * Read the workbook, or load the model from the cache when the workbook did not change
+	 * 
+	 * @param fin input file
+	 * @param sheet name of the sheet with descriptions
+	 * @param mappings name of the sheet with mappings
+	 * @param cacheDir cache directory or null
+	 * @param errors file to write rejected rows to, or null
+	 * @param streaming stream the XLSX instead of loading the complete workbook
+	 * @return model
+	 */
+	private static Model readModel(File fin, String sheet, String mappings, String cacheDir, 
+															String errors, boolean streaming) {
+		if (cacheDir == null) {
+			return readWorkbook(fin, sheet, mappings, errors, streaming);
+		}
+		
+		ModelCache cache = new ModelCache(Paths.get(cacheDir));
+		String key = null;
+		try {
+			key = ModelCache.key(fin, streaming, sheet, mappings);
+			// rejected rows are not cached, so read the workbook again when they are requested
+			Model model = (errors == null) ? cache.load(key) : null;
+			if (model != null) {
+				LOG.info("Rejected rows are not reported when loading from the cache, use -e to report them");
+				return model;
+			}
+		} catch (IOException ioe) {
+			LOG.warn("Could not calculate cache key " + ioe.getMessage());
+		}
+		
+		Model model = readWorkbook(fin, sheet, mappings, errors, streaming);
+		if (key != null && ! model.isEmpty()) {
+			try {
+				cache.store(key, model);
+			} catch (IOException ioe) {
+				LOG.warn("Could not store model in cache " + ioe.getMessage());
+			}
+		}
+		return model;
+	}
+	
+	/**
+	 * Get all direct and indirect superclasses of each class, using rdfs:subClassOf
+	 * 
+	 * @param m model
+	 * @return map of a class to its superclasses
+	 */
+	private static Map<IRI,Set<IRI>> getSuperClasses(Model m) {
+		Map<IRI,Set<IRI>> direct = new HashMap<>();
+		for (Statement st: m.filter(null, RDFS.SUBCLASSOF, null)) {
+			if (st.getSubject() instanceof IRI && st.getObject() instanceof IRI) {
+				direct.computeIfAbsent((IRI) st.getSubject(), k -> new HashSet<>()).add((IRI) st.getObject());
+			}
+		}
+		
+		Map<IRI,Set<IRI>> closure = new HashMap<>();
+		for (Map.Entry<IRI,Set<IRI>> e: direct.entrySet()) {
+			Set<IRI> supers = new HashSet<>();
+			Deque<IRI> todo = new ArrayDeque<>(e.getValue());
+			while (! todo.isEmpty()) {
+				IRI sup = todo.pop();
+				if (supers.add(sup)) {
+					todo.addAll(direct.getOrDefault(sup, Collections.emptySet()));
+				}
+			}
+			closure.put(e.getKey(), supers);
+		}
+		return closure;
+	}
+	
+	/**
+	 * Generate SHACL shapes for all contexts and validate a data file
+	 * 
+	 * @param args arguments
+	 */
+	private static void validate(String[] args) {
+		CommandLine cli = parseArgs(VALIDATE_OPTS, "xls2shacl.jar validate", args);
+		if (cli == null) {
+			exit(-1, "Couldn't parse command line");
+		}
+		
+		String infile = cli.getOptionValue("i", "");
+		String sheet = cli.getOptionValue("s", "Standard");
+		String mappings = cli.getOptionValue("m", "Datamodels");
+		String data = cli.getOptionValue("d", "");
+		String report = cli.getOptionValue("r", "report.ttl");
+		int threads = getThreads(cli.getOptionValue("t", "1"));
+		if (threads < 1) {
+			exit(-1, "Number of threads must be a positive integer");
+		}
+		
+		Model model = readModel(new File(infile), sheet, mappings, cli.getOptionValue("c"), 
+											cli.getOptionValue("e"), cli.hasOption("x"));
+		
+		ShaclWriter shacl = new ShaclWriter();
+		Model shapes = new LinkedHashModel();
+		for(Resource context: model.contexts()) {
+			if (context != null) {
+				String name = ((IRI) context).getLocalName();
+				shapes.addAll(shacl.generate(name, model.filter(null, null, null, context)));
+			}
+		}
+		
+		ShaclValidator validator = new ShaclValidator(shapes, getSuperClasses(model));
+		try {
+			Path p = Paths.get(data);
+			try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(Paths.get(report)))) {
+				RDFHandler handler = Rio.createWriter(RDFFormat.TURTLE, os);
+				if (threads > 1 && Rio.getParserFormatForFileName(data).orElse(null) == RDFFormat.NTRIPLES) {
+					new ShardedValidator(validator, threads).validate(p, handler);
+				} else {
+					if (threads > 1) {
+						LOG.warn("Multi-threaded validation requires N-Triples, using single thread");
+					}
+					validator.validate(p, handler);
+				}
+			}
+		} catch (IOException ioe) {
+			exit(-2, ioe.toString());
+		}
+	}
+	
 	/**
 	 * Main
 	 * 
 	 * @param args 
 	 */
 	public static void main(String[] args) {
-		CommandLine cli = parseArgs(args);
+		if (args.length > 0 && args[0].equals("validate")) {
+			validate(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
+		
+		CommandLine cli = parseArgs(OPTS, "xls2shacl.jar", args);
 		if (cli == null) {
 			exit(-1, "Couldn't parse command line");
 		}
@@ -101,29 +380,42 @@ public class Main {
 		String mappings = cli.getOptionValue("m", "Datamodels");
 		String dir = cli.getOptionValue("o", ".");
 		
-		OntoReader reader = new OntoReader();
-		Model model = reader.read(new File(infile), sheet, mappings);
+		Model model = readModel(new File(infile), sheet, mappings, cli.getOptionValue("c"), 
+											cli.getOptionValue("e"), cli.hasOption("x"));
 		Set<Resource> contexts = model.contexts();
 
 		if (contexts.isEmpty()) {
 			LOG.error("Nothing to write");
 		}
 		
+		if (cli.hasOption("q")) {
+			String quads = cli.getOptionValue("q");
+			RDFFormat format = getQuadsFormat(cli.getOptionValue("f"), quads);
+			try (OutputStream os = quads.equals("-") 
+								? new BufferedOutputStream(new FileOutputStream(FileDescriptor.out))
+								: new BufferedOutputStream(Files.newOutputStream(Paths.get(quads)))) {
+				writeQuads(os, format, model);
+			} catch (IOException ioe) {
+				LOG.error(ioe.toString());
+			}
+			return;
+		}
+		
 		ShaclWriter shacl = new ShaclWriter();
 		OwlWriter owl = new OwlWriter();
 		
-		for(Resource context: contexts) {
-			if (context != null) {
-				String name = ((IRI) context).getLocalName();
-				Model m = model.filter(null, null, null, context);
-					
-				try {
-					shacl.writeFile(Paths.get(dir, "shacl"), name, m);
-					owl.writeFile(Paths.get(dir, "owl"), name, m);
-				} catch (IOException ioe) {
-					LOG.error(ioe.toString());
+		try (OutputPipeline pipeline = new OutputPipeline(BUFFERS)) {
+			for(Resource context: contexts) {
+				if (context != null) {
+					String name = ((IRI) context).getLocalName();
+					Model m = model.filter(null, null, null, context);
+
+					shacl.writeFile(Paths.get(dir, "shacl"), name, m, pipeline);
+					owl.writeFile(Paths.get(dir, "owl"), name, m, pipeline);
 				}
 			}
+		} catch (IOException ioe) {
+			LOG.error(ioe.toString());
 		}
 	}
 	
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParseException;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the RDF model read from a workbook, stored as Binary RDF.
+ * 
+ * The key is the SHA-256 of a format version, the reader being used, the workbook 
+ * and the names of the sheets being read.
+ */
+public class ModelCache {
+	private final static Logger LOG = LoggerFactory.getLogger(ModelCache.class);
+	
+	// change when the conversion or the cache format changes, invalidating existing entries
+	private final static String VERSION = "xls2shacl-cache-1";
+	
+	private final Path dir;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param dir cache directory
+	 */
+	public ModelCache(Path dir) {
+		this.dir = dir;
+	}
+	
+	/**
+	 * Calculate the cache key for a workbook and a set of sheets
+	 * 
+	 * @param fin workbook file
+	 * @param streaming streaming reader instead of loading the complete workbook
+	 * @param sheets names of the sheets
+	 * @return hex encoded SHA-256 hash
+	 * @throws IOException 
+	 */
+	public static String key(File fin, boolean streaming, String... sheets) throws IOException {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			throw new IOException(ex);
+		}
+		
+		md.update(VERSION.getBytes(StandardCharsets.UTF_8));
+		md.update((byte) 0);
+		md.update((byte) (streaming ? 's' : 'u'));
+		
+		byte[] buf = new byte[64 * 1024];
+		try (InputStream is = Files.newInputStream(fin.toPath())) {
+			for (int n = is.read(buf); n >= 0; n = is.read(buf)) {
+				md.update(buf, 0, n);
+			}
+		}
+		for (String sheet: sheets) {
+			md.update((byte) 0);
+			md.update(sheet.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		StringBuilder sb = new StringBuilder();
+		for (byte b: md.digest()) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Get the cache file for a key
+	 * 
+	 * @param key cache key
+	 * @return path
+	 */
+	private Path getPath(String key) {
+		return dir.resolve(key + ".brf");
+	}
+	
+	/**
+	 * Load a model from the cache
+	 * 
+	 * @param key cache key
+	 * @return model or null when not found
+	 */
+	public Model load(String key) {
+		Path p = getPath(key);
+		if (! Files.exists(p)) {
+			LOG.info("Cache miss " + key);
+			return null;
+		}
+		LOG.info("Loading from cache " + p);
+		try (InputStream is = new BufferedInputStream(Files.newInputStream(p))) {
+			return Rio.parse(is, "", RDFFormat.BINARY);
+		} catch (IOException | RDFParseException ex) {
+			LOG.warn("Could not read cache " + p);
+			return null;
+		}
+	}
+	
+	/**
+	 * Store a model in the cache
+	 * 
+	 * @param key cache key
+	 * @param m model
+	 * @throws IOException 
+	 */
+	public void store(String key, Model m) throws IOException {
+		Files.createDirectories(dir);
+		Path p = getPath(key);
+		Path tmp = Files.createTempFile(dir, key, ".tmp");
+		
+		try {
+			try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+				Rio.write(m, os, RDFFormat.BINARY);
+			}
+			// other runs could be reading or writing the same key
+			Files.move(tmp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			LOG.info("Stored in cache " + p);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+}
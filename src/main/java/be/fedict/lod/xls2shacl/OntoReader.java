@@ -26,22 +26,16 @@
 package be.fedict.lod.xls2shacl;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.CellType;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.ss.usermodel.WorkbookFactory;
+import java.util.function.BiConsumer;
 
 import org.eclipse.rdf4j.model.IRI;
-import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
 import org.eclipse.rdf4j.model.Resource;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
@@ -75,23 +69,70 @@ public class OntoReader {
 	private final String PREFIX = "http://vocab.belgif.be";
 	private final String GRAPH = "http://fedict.be/graph/";
 	
-	private final int ID = 0;
-	private final int ONTO = 1;
-	private final int TYPE = 2;
-	private final int URI = 3;
-	private final int NAME = 4;
-	private final int LABEL_NL = 5;
-	private final int LABEL_FR = 6;
-	private final int DEF = 7;
-	private final int DEF_NL = 8;
-	private final int DEF_FR = 9;
+	private final List<RejectedRow> rejected = new ArrayList<>();
+	private final IriNormalizer normalizer;
+	
+	private final static int ID = 0;
+	private final static int ONTO = 1;
+	private final static int TYPE = 2;
+	private final static int URI = 3;
+	private final static int NAME = 4;
+	private final static int LABEL_NL = 5;
+	private final static int LABEL_FR = 6;
+	private final static int DEF = 7;
+	private final static int DEF_NL = 8;
+	private final static int DEF_FR = 9;
+	
+	private final static String[] DESC_HEADERS = { "ID", "Ontology", "Type", "URI", "Name", 
+		"LabelNL", "LabelFR", "Definition", "DefinitionNL", "DefinitionFR" };
+	private final static int[] DESC_COLUMNS = { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 };
+	
+	private final static int SOURCE = 0;
+	private final static int DATA_MODEL = 1;
+	private final static int PREDICATE = 2;
+	private final static int OBJECT_NAME = 3;
+	private final static int SUBJECT_ID = 4;
+	private final static int OBJECT_ID = 5;
+	
+	// when the header row of the mapping sheet contains none of these names, 
+	// the fixed positions used by earlier versions are read instead
+	private final static String[] MAP_HEADERS = { "Source", "DataModel", "Predicate", "ObjectName", 
+		"SubjectID", "ObjectID" };
+	private final static int[] MAP_COLUMNS = { 2, 3, 5, 6, 10, 11 };
+	
+	private final boolean streaming;
 	
-	private final int SOURCE = 2;
-	private final int DATA_MODEL = 3;
-	private final int PREDICATE = 5;
-	private final int OBJECT_NAME = 6;
-	private final int SUBJECT_ID = 10;
-	private final int OBJECT_ID = 11;
+	/**
+	 * Constructor
+	 */
+	public OntoReader() {
+		this(false);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param streaming stream the XLSX instead of loading the complete workbook
+	 */
+	public OntoReader(boolean streaming) {
+		this.streaming = streaming;
+		
+		// same prefixes as used in the generated files
+		Map<String,String> prefixes = new HashMap<>();
+		for (Namespace ns: new ShaclWriter().getNamespaces()) {
+			prefixes.put(ns.getPrefix(), ns.getName());
+		}
+		normalizer = new IriNormalizer(PREFIX, prefixes);
+	}
+	
+	/**
+	 * Get the rows that could not be converted
+	 * 
+	 * @return list of rejected rows
+	 */
+	public List<RejectedRow> getRejected() {
+		return rejected;
+	}
 	
 	/**
 	 * Get existing (ontology) context or create a new one
@@ -109,70 +150,58 @@ public class OntoReader {
 	
 	
 	/**
-	 * Create a literal from string value of a cell
+	 * Add a literal to the model, if the cell is not missing
 	 * 
-	 * @param cell spreadsheet cell
-	 * @param lang langauge code
-	 * @return literal
+	 * @param s subject
+	 * @param p predicate
+	 * @param value string value of a cell or null
+	 * @param lang language code
+	 * @param context context
 	 */
-	private Literal makeLiteral(Cell cell, String lang) {
-		if (cell.getCellType() == CellType.NUMERIC) {
-			return FAC.createLiteral(String.valueOf(cell.getNumericCellValue()), lang);
-		} 
-		return FAC.createLiteral(cell.getStringCellValue(), lang);
+	private void addLiteral(IRI s, IRI p, String value, String lang, Resource context) {
+		if (value != null) {
+			m.add(s, p, FAC.createLiteral(value, lang), context);
+		}
 	}
 
 	//Ontology	Type	URI	Name	LabelNL	LabelFR	Definition	DefinitionNL	DefinitionFR	Comment	CommentNL	CommentFR
 
 	/**
-	 * Process rows in work sheet
+	 * Process row in description work sheet
 	 * 
-	 * @param sheet work sheet to process
+	 * @param sheet name of the work sheet
+	 * @param row row to process
 	 */
-	private void processDescRows(Sheet sheet) {	
-		for (Row row: sheet) {
-			if (row.getRowNum() == 0) {
-				continue; // skip header
-			}
-			Cell id = row.getCell(ID);
-			Cell val = row.getCell(ONTO);
-			Cell type = row.getCell(TYPE);
-			Cell uri = row.getCell(URI);
-			Cell name = row.getCell(NAME);
-			Cell label_nl = row.getCell(LABEL_NL);
-			Cell label_fr = row.getCell(LABEL_FR);
-			Cell def_en = row.getCell(DEF);
-			Cell def_nl = row.getCell(DEF_NL);
-			Cell def_fr = row.getCell(DEF_FR);
+	private void processDescRow(String sheet, SheetRow row) {	
+		String val = row.getString(ONTO);
+		String type = row.getString(TYPE);
+		String u = row.getString(URI);
 			
-			if (val != null && type != null && uri != null) {
-				Resource context = getContext(val.getStringCellValue());
-				try {
-					String u = uri.getStringCellValue();
-					if (u.startsWith("<")) {
-						u = u.substring(1);
-					} 
-					if (u.endsWith(">")) {
-						u = u.substring(0, u.length() - 1);
-					}
-					IRI s = FAC.createIRI(u);
-					IRI o = type.getStringCellValue().toLowerCase().equals("class") ? RDFS.CLASS 
-																					: RDF.PROPERTY;
-					mapping.put((int) id.getNumericCellValue(), s);
-					
-					m.add(s, RDF.TYPE, o, context);
-					m.add(s, SKOS.ALT_LABEL, makeLiteral(name, "en"), context);
-					m.add(s, DCTERMS.TITLE, makeLiteral(name, "en"), context);
-					m.add(s, DCTERMS.TITLE, makeLiteral(label_nl, "nl"), context);
-					m.add(s, DCTERMS.TITLE, makeLiteral(label_fr, "fr"), context);
-					m.add(s, DCTERMS.DESCRIPTION, makeLiteral(def_en, "en"), context);
-					m.add(s, DCTERMS.DESCRIPTION, makeLiteral(def_nl, "nl"), context);
-					m.add(s, DCTERMS.DESCRIPTION, makeLiteral(def_fr, "fr"), context);
-					
-				} catch (IllegalArgumentException ioe) {
-					LOG.warn("Can't create IRI" + ioe.getMessage());
-				}
+		if (val != null && type != null && u != null) {
+			Resource context = getContext(val);
+			IriNormalizer.Result res = normalizer.normalize(u);
+			IRI s = res.getIRI();
+			if (s == null) {
+				rejected.add(new RejectedRow(sheet, row.getRowNum(), u, res.getError()));
+				return;
+			}
+			Double id = row.getNumber(ID);
+			if (id == null) {
+				rejected.add(new RejectedRow(sheet, row.getRowNum(), row.getString(ID), "No numeric ID"));
+				return;
 			}
+			IRI o = type.toLowerCase().equals("class") ? RDFS.CLASS : RDF.PROPERTY;
+			mapping.put(id.intValue(), s);
+			
+			String name = row.getString(NAME);
+			m.add(s, RDF.TYPE, o, context);
+			addLiteral(s, SKOS.ALT_LABEL, name, "en", context);
+			addLiteral(s, DCTERMS.TITLE, name, "en", context);
+			addLiteral(s, DCTERMS.TITLE, row.getString(LABEL_NL), "nl", context);
+			addLiteral(s, DCTERMS.TITLE, row.getString(LABEL_FR), "fr", context);
+			addLiteral(s, DCTERMS.DESCRIPTION, row.getString(DEF), "en", context);
+			addLiteral(s, DCTERMS.DESCRIPTION, row.getString(DEF_NL), "nl", context);
+			addLiteral(s, DCTERMS.DESCRIPTION, row.getString(DEF_FR), "fr", context);
 		}
 	}
 	
@@ -210,73 +239,105 @@ public class OntoReader {
 	
 	
 	/**
-	 * Process rows in work sheet
+	 * Process row in mapping work sheet
 	 * 
-	 * @param sheet work sheet to process
+	 * @param sheet name of the work sheet
+	 * @param row row to process
 	 */
-	private void processMapRows(Sheet sheet) {	
-		for (Row row: sheet) {
-			if (row.getRowNum() == 0) {
-				continue; // skip header
-			}
-			Cell val = row.getCell(DATA_MODEL);
-			Cell source = row.getCell(SOURCE);
+	private void processMapRow(String sheet, SheetRow row) {	
+		String val = row.getString(DATA_MODEL);
+		String source = row.getString(SOURCE);
 			
-			String src = (source != null) ? source.getStringCellValue().toLowerCase() : "";
-			if (! src.equals("fed")) {
-				LOG.debug("Skipping source " + src);
-				continue; // skip non fed source
-			}
-
-			Cell pred = row.getCell(PREDICATE);
-			Cell subj = row.getCell(SUBJECT_ID);
-			Cell obj = row.getCell(OBJECT_ID);
-			Cell name = row.getCell(OBJECT_NAME);
+		String src = (source != null) ? source.toLowerCase() : "";
+		if (! src.equals("fed")) {
+			LOG.debug("Skipping source " + src);
+			return; // skip non fed source
+		}
 
-			if (val != null && pred != null) {
-				Resource context = getContext(val.getStringCellValue());
-				try {
-					IRI s = mapping.get((int) subj.getNumericCellValue());
-					if (s == null) {
-						LOG.debug("Subject not found row " + row.getRowNum());
-						continue;
-					}
-					IRI o = null;
-					if (obj != null) {
-						o = mapping.get((int) obj.getNumericCellValue());
-						if (o == null) {
-							LOG.debug("Object not found" + row.getRowNum());
-							continue;
-						}
-					}
+		String pred = row.getString(PREDICATE);
+		Double subj = row.getNumber(SUBJECT_ID);
+		Double obj = row.getNumber(OBJECT_ID);
 
-					String p = pred.getStringCellValue().toLowerCase();
-					switch (p) {
-						case "domain":							
-								m.add(s, RDFS.DOMAIN ,o, context);
-								break;
-						case "range": 
-								if (o != null) {
-									m.add(s, RDFS.RANGE, o, context);
-								} else {
-									IRI t = getType(name.getStringCellValue());
-									if (t != null) {
-										m.add(s, OWL.DATATYPEPROPERTY, t);
-									}
-								}
-								break;
-						case "subclassof":
-								m.add(s, RDFS.SUBCLASSOF, o, context);
-						default: 
-								break;
-					}
-				} catch (IllegalArgumentException ioe) {
-					LOG.warn("Can't create IRI" + ioe.getMessage());
+		if (val != null && pred != null) {
+			Resource context = getContext(val);
+			IRI s = (subj != null) ? mapping.get(subj.intValue()) : null;
+			if (s == null) {
+				rejected.add(new RejectedRow(sheet, row.getRowNum(), 
+					row.getString(SUBJECT_ID), "Subject not found"));
+				return;
+			}
+			IRI o = null;
+			if (obj != null) {
+				o = mapping.get(obj.intValue());
+				if (o == null) {
+					rejected.add(new RejectedRow(sheet, row.getRowNum(), 
+						row.getString(OBJECT_ID), "Object not found"));
+					return;
 				}
 			}
+
+			String p = pred.toLowerCase();
+			if (o == null && (p.equals("domain") || p.equals("subclassof"))) {
+				rejected.add(new RejectedRow(sheet, row.getRowNum(), 
+					row.getString(OBJECT_ID), "No object for " + p));
+				return;
+			}
+			switch (p) {
+				case "domain":							
+						m.add(s, RDFS.DOMAIN ,o, context);
+						break;
+				case "range": 
+						if (o != null) {
+							m.add(s, RDFS.RANGE, o, context);
+						} else {
+							IRI t = getType(row.getString(OBJECT_NAME));
+							if (t != null) {
+								m.add(s, OWL.DATATYPEPROPERTY, t);
+							}
+						}
+						break;
+				case "subclassof":
+						m.add(s, RDFS.SUBCLASSOF, o, context);
+				default: 
+						break;
+			}
 		}
 	}
 		
+	/**
+	 * Read a work sheet and record a flight recorder event
+	 * 
+	 * @param src sheet source
+	 * @param phase name of the phase
+	 * @param sheet name of the work sheet
+	 * @param layout column layout
+	 * @param proc row processor
+	 * @return false when the sheet was not found
+	 * @throws IOException 
+	 */
+	private boolean readSheet(SheetSource src, String phase, String sheet, ColumnLayout layout, 
+								BiConsumer<String,SheetRow> proc) throws IOException {
+		Events.ReadEvent event = new Events.ReadEvent();
+		event.begin();
+		
+		int before = rejected.size();
+		int[] rows = { 0 };
+		boolean found = src.read(sheet, layout, row -> {
+			rows[0]++;
+			proc.accept(sheet, row);
+		});
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.phase = phase;
+			event.sheet = sheet;
+			event.rows = rows[0];
+			event.rejected = rejected.size() - before;
+			event.commit();
+		}
+		return found;
+	}
+	
 	/**
 	 * Read file into RDF models, one context per ontology
 	 * 
@@ -286,20 +347,20 @@ public class OntoReader {
 	 * @return model
 	 */
 	public Model read(File fin, String descSheet, String mapSheet) {
-		try (InputStream is = new FileInputStream(fin)) {
-			Workbook wb = WorkbookFactory.create(is);
+		Events.ReadEvent open = new Events.ReadEvent();
+		open.begin();
+		
+		try (SheetSource src = streaming ? new StreamingSource(fin) : new UserModelSource(fin)) {
+			open.phase = "open";
+			open.commit();
 			
-			Sheet sheet = wb.getSheet(descSheet);
-			if (sheet != null) {
-				processDescRows(sheet);
-			} else {
+			ColumnLayout desc = new ColumnLayout(DESC_HEADERS, DESC_COLUMNS);
+			if (! readSheet(src, "descriptions", descSheet, desc, this::processDescRow)) {
 				LOG.error("Worksheet not found: " + descSheet);
 			}
 			
-			sheet = wb.getSheet(mapSheet);
-			if (sheet != null) {
-				processMapRows(sheet);
-			} else {
+			ColumnLayout map = new ColumnLayout(MAP_HEADERS, MAP_COLUMNS);
+			if (! readSheet(src, "mappings", mapSheet, map, this::processMapRow)) {
 				LOG.error("Worksheet not found: " + mapSheet);
 			}
 		} catch (IOException ex) {
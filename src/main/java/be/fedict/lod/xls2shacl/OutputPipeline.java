@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write serialized files on a dedicated I/O thread.
+ * 
+ * Files are serialized into reusable in-memory buffers, which are handed over to the I/O thread.
+ * The number of buffers is limited, so serialization blocks when the I/O thread cannot keep up.
+ * A file that cannot be written does not stop the other files from being written,
+ * all failures are reported when the pipeline is closed.
+ */
+public class OutputPipeline implements Closeable {
+	private final static Logger LOG = LoggerFactory.getLogger(OutputPipeline.class);
+	
+	private final static Job STOP = new Job(null, null);
+	private final static long WAIT = 100;
+	
+	private final BlockingQueue<Buffer> pool;
+	private final BlockingQueue<Job> queue;
+	private final Thread io;
+	
+	private final List<IOException> failures = Collections.synchronizedList(new ArrayList<>());
+	
+	/**
+	 * Reusable in-memory buffer
+	 */
+	public static class Buffer extends ByteArrayOutputStream {
+		/**
+		 * Constructor
+		 * 
+		 * @param size initial size
+		 */
+		Buffer(int size) {
+			super(size);
+		}
+		
+		/**
+		 * Get the content of the buffer, without copying
+		 * 
+		 * @return byte buffer
+		 */
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+	
+	/**
+	 * File to be written
+	 */
+	private static class Job {
+		private final Path file;
+		private final Buffer buf;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param file file to write
+		 * @param buf content
+		 */
+		Job(Path file, Buffer buf) {
+			this.file = file;
+			this.buf = buf;
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param buffers number of buffers
+	 */
+	public OutputPipeline(int buffers) {
+		pool = new ArrayBlockingQueue<>(buffers);
+		queue = new ArrayBlockingQueue<>(buffers + 1);
+		for (int i = 0; i < buffers; i++) {
+			pool.add(new Buffer(64 * 1024));
+		}
+		io = new Thread(this::run, "xls2shacl-io");
+		io.start();
+	}
+	
+	/**
+	 * Write the content of a buffer to a file, creating the parent directory if needed
+	 * 
+	 * @param file file
+	 * @param buf buffer
+	 * @throws IOException 
+	 */
+	private static void write(Path file, Buffer buf) throws IOException {
+		Path dir = file.getParent();
+		if (dir != null && ! Files.exists(dir)) {
+			LOG.info("Creating subdir");
+			Files.createDirectories(dir);
+		}
+		Events.WriteEvent event = new Events.WriteEvent();
+		event.begin();
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, 
+													StandardOpenOption.TRUNCATE_EXISTING,
+													StandardOpenOption.WRITE)) {
+			ByteBuffer bb = buf.toByteBuffer();
+			while (bb.hasRemaining()) {
+				ch.write(bb);
+			}
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.file = file.toString();
+			event.bytes = buf.size();
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Take jobs from the queue and write them to disk, until stopped.
+	 * Failures are recorded per file, and do not stop the remaining jobs.
+	 */
+	private void run() {
+		try {
+			for (Job job = queue.take(); job != STOP; job = queue.take()) {
+				try {
+					write(job.file, job.buf);
+				} catch (Throwable t) {
+					LOG.error("Could not write " + job.file + " " + t.getMessage());
+					failures.add(new IOException("Could not write " + job.file, t));
+				} finally {
+					release(job.buf);
+				}
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Check if the I/O thread is still running
+	 * 
+	 * @throws IOException 
+	 */
+	private void checkAlive() throws IOException {
+		if (! io.isAlive()) {
+			throw new IOException("I/O thread stopped");
+		}
+	}
+	
+	/**
+	 * Get an empty buffer, waiting until one is available
+	 * 
+	 * @return empty buffer
+	 * @throws IOException 
+	 */
+	public Buffer take() throws IOException {
+		try {
+			Buffer buf = null;
+			while (buf == null) {
+				checkAlive();
+				buf = pool.poll(WAIT, TimeUnit.MILLISECONDS);
+			}
+			return buf;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for buffer", ex);
+		}
+	}
+	
+	/**
+	 * Return an unused buffer to the pool
+	 * 
+	 * @param buf buffer obtained via take()
+	 */
+	public void release(Buffer buf) {
+		buf.reset();
+		pool.add(buf);
+	}
+	
+	/**
+	 * Hand a filled buffer over to the I/O thread
+	 * 
+	 * @param file file to write
+	 * @param buf buffer obtained via take()
+	 * @throws IOException 
+	 */
+	public void submit(Path file, Buffer buf) throws IOException {
+		Job job = new Job(file, buf);
+		try {
+			do {
+				checkAlive();
+			} while (! queue.offer(job, WAIT, TimeUnit.MILLISECONDS));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while submitting " + file, ex);
+		}
+	}
+	
+	/**
+	 * Wait until all files are written and stop the I/O thread
+	 * 
+	 * @throws IOException when one or more files could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			while (io.isAlive() && ! queue.offer(STOP, WAIT, TimeUnit.MILLISECONDS)) {
+				// wait for the I/O thread to make room
+			}
+			io.join();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for I/O thread", ex);
+		}
+		synchronized (failures) {
+			if (failures.isEmpty()) {
+				return;
+			}
+			IOException ex = new IOException("Could not write " + failures.size() + " file(s)");
+			for (IOException failure: failures) {
+				ex.addSuppressed(failure);
+			}
+			throw ex;
+		}
+	}
+}
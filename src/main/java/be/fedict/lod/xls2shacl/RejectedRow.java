@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+/**
+ * Spreadsheet row that could not be converted
+ */
+public class RejectedRow {
+	private final String sheet;
+	private final int row;
+	private final String value;
+	private final String reason;
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param sheet name of the sheet
+	 * @param row row number
+	 * @param value offending value
+	 * @param reason reason
+	 */
+	public RejectedRow(String sheet, int row, String value, String reason) {
+		this.sheet = sheet;
+		this.row = row;
+		this.value = value;
+		this.reason = reason;
+	}
+	
+	/**
+	 * Get name of the sheet
+	 * 
+	 * @return sheet name
+	 */
+	public String getSheet() {
+		return sheet;
+	}
+	
+	/**
+	 * Get row number, starting at 0
+	 * 
+	 * @return row number
+	 */
+	public int getRow() {
+		return row;
+	}
+	
+	/**
+	 * Get offending value
+	 * 
+	 * @return value, can be empty
+	 */
+	public String getValue() {
+		return value;
+	}
+	
+	/**
+	 * Get reason why the row was rejected
+	 * 
+	 * @return reason
+	 */
+	public String getReason() {
+		return reason;
+	}
+	
+	/**
+	 * Escape tabs and line breaks, so the value fits in one tab-separated field
+	 * 
+	 * @param s string or null
+	 * @return escaped string, empty when null
+	 */
+	private static String escape(String s) {
+		if (s == null) {
+			return "";
+		}
+		return s.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+	
+	/**
+	 * Tab-separated line, with the row number as shown in spreadsheet applications (starting at 1)
+	 * 
+	 * @return string
+	 */
+	@Override
+	public String toString() {
+		return escape(sheet) + "\t" + (row + 1) + "\t" + escape(value) + "\t" + escape(reason);
+	}
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validate RDF data against the (simple) SHACL shapes generated by the SHACL writer.
+ * 
+ * Only sh:targetClass, sh:property, sh:path, sh:class and sh:datatype are supported.
+ * Instances of subclasses (rdfs:subClassOf, as given by the ontology) are treated as 
+ * instances of the target class or the expected class.
+ * The shapes are compiled into checks indexed by target class and by path, 
+ * so the data file can be streamed and only the types of nodes and the values that could
+ * violate a check are kept in memory.
+ * 
+ * The heap needed depends on the number of typed nodes and candidates, not on the size 
+ * of the file: about 170 bytes for each of them. E.g. 3 million triples (340 MB of N-Triples) 
+ * with 950.000 typed nodes and 540.000 candidates retain about 250 MB, and validate with -Xmx400m.
+ * 
+ * The sh:sourceShape of a result is the property shape holding the constraint. 
+ * Blank node property shapes get a label derived from their node shape and path,
+ * so reports of different runs can be compared.
+ */
+public class ShaclValidator {
+	private final static Logger LOG = LoggerFactory.getLogger(ShaclValidator.class);
+	
+	private final ValueFactory FAC = SimpleValueFactory.getInstance();
+	
+	private final Map<IRI,List<Check>> byTarget = new HashMap<>();
+	private final Set<IRI> classes = new HashSet<>();
+	private final Map<IRI,Set<IRI>> expand = new HashMap<>();
+	private final Set<IRI> paths = new HashSet<>();
+	private final Map<IRI,IRI> datatypes = new HashMap<>();
+	
+	/**
+	 * Compiled property shape
+	 */
+	abstract static class Check {
+		protected final Resource shape;
+		protected final IRI path;
+		protected final IRI expected;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param shape property shape
+		 * @param path property path
+		 * @param expected expected class or datatype
+		 */
+		Check(Resource shape, IRI path, IRI expected) {
+			this.shape = shape;
+			this.path = path;
+			this.expected = expected;
+		}
+		
+		/**
+		 * Get constraint component for the validation report
+		 * 
+		 * @return constraint component IRI
+		 */
+		abstract IRI getComponent();
+		
+		/**
+		 * Check if a value conforms
+		 * 
+		 * @param v value
+		 * @param types function returning the classes of a value, including superclasses
+		 * @return true if value conforms
+		 */
+		abstract boolean conforms(Value v, Function<Value,Set<IRI>> types);
+	}
+	
+	/**
+	 * Check for sh:class
+	 */
+	static class ClassCheck extends Check {
+		ClassCheck(Resource shape, IRI path, IRI expected) {
+			super(shape, path, expected);
+		}
+		
+		@Override
+		IRI getComponent() {
+			return SHACL.CLASS_CONSTRAINT_COMPONENT;
+		}
+		
+		@Override
+		boolean conforms(Value v, Function<Value,Set<IRI>> types) {
+			return (v instanceof Resource) && types.apply(v).contains(expected);
+		}
+	}
+	
+	/**
+	 * Check for sh:datatype
+	 */
+	static class DatatypeCheck extends Check {
+		DatatypeCheck(Resource shape, IRI path, IRI expected) {
+			super(shape, path, expected);
+		}
+		
+		@Override
+		IRI getComponent() {
+			return SHACL.DATATYPE_CONSTRAINT_COMPONENT;
+		}
+		
+		@Override
+		boolean conforms(Value v, Function<Value,Set<IRI>> types) {
+			return (v instanceof Literal) && ((Literal) v).getDatatype().equals(expected);
+		}
+	}
+	
+	/**
+	 * Validation result
+	 */
+	static class Result {
+		private final Resource focus;
+		private final Value value;
+		private final Check check;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param focus focus node
+		 * @param value offending value
+		 * @param check failed check
+		 */
+		Result(Resource focus, Value value, Check check) {
+			this.focus = focus;
+			this.value = value;
+			this.check = check;
+		}
+	}
+	
+	private final static Comparator<Result> ORDER = 
+		Comparator.comparing((Result r) -> r.focus.stringValue())
+					.thenComparing(r -> r.check.path.stringValue())
+					.thenComparing(r -> r.value.stringValue())
+					.thenComparing(r -> r.check.getComponent().stringValue())
+					.thenComparing(r -> r.check.shape.stringValue());
+	
+	/**
+	 * RDF handler adding statements to a focus index and collecting the candidates
+	 */
+	static class IndexHandler extends AbstractRDFHandler {
+		private final FocusIndex index;
+		private final List<FocusIndex.Candidate> candidates = new ArrayList<>();
+		private long count = 0;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param index focus index
+		 */
+		IndexHandler(FocusIndex index) {
+			this.index = index;
+		}
+		
+		@Override
+		public void handleStatement(Statement st) {
+			FocusIndex.Candidate c = index.add(st);
+			if (c != null) {
+				candidates.add(c);
+			}
+			count++;
+		}
+		
+		/**
+		 * Get the candidates that could violate a check
+		 * 
+		 * @return list of candidates
+		 */
+		List<FocusIndex.Candidate> getCandidates() {
+			return candidates;
+		}
+		
+		/**
+		 * Get number of processed statements
+		 * 
+		 * @return number of statements
+		 */
+		long getCount() {
+			return count;
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shapes SHACL shapes, as generated by the SHACL writer
+	 */
+	public ShaclValidator(Model shapes) {
+		this(shapes, Collections.emptyMap());
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param shapes SHACL shapes, as generated by the SHACL writer
+	 * @param superClasses map of a class to all its (direct and indirect) superclasses
+	 */
+	public ShaclValidator(Model shapes, Map<IRI,Set<IRI>> superClasses) {
+		compile(shapes);
+		expand(superClasses);
+	}
+	
+	/**
+	 * Get a stable identifier for a property shape
+	 * 
+	 * @param nodeShape node shape
+	 * @param propShape property shape
+	 * @param path property path
+	 * @return property shape, or a blank node with a label based on node shape and path
+	 */
+	private Resource getShapeId(Resource nodeShape, Resource propShape, IRI path) {
+		if (! (propShape instanceof BNode)) {
+			return propShape;
+		}
+		String id = nodeShape.stringValue() + " " + path.stringValue();
+		UUID uuid = UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8));
+		return FAC.createBNode("shape" + uuid.toString().replace("-", ""));
+	}
+	
+	/**
+	 * Compile the node and property shapes into checks
+	 * 
+	 * @param shapes SHACL shapes
+	 */
+	private void compile(Model shapes) {
+		Set<IRI> classPaths = new HashSet<>();
+		Map<IRI,Set<IRI>> pathTypes = new HashMap<>();
+		
+
+		for (Resource nodeShape: shapes.filter(null, RDF.TYPE, SHACL.NODE_SHAPE).subjects()) {
+			Set<IRI> targets = Models.objectIRIs(shapes.filter(nodeShape, SHACL.TARGET_CLASS, null));
+			if (targets.isEmpty()) {
+				continue;
+			}
+			List<Check> checks = new ArrayList<>();
+			
+			for (Value v: shapes.filter(nodeShape, SHACL.PROPERTY, null).objects()) {
+				Resource propShape = (Resource) v;
+				IRI path = Models.objectIRI(shapes.filter(propShape, SHACL.PATH, null)).orElse(null);
+				if (path == null) {
+					LOG.warn("No path for property shape in " + nodeShape);
+					continue;
+				}
+				Resource shape = getShapeId(nodeShape, propShape, path);
+				for (IRI cl: Models.objectIRIs(shapes.filter(propShape, SHACL.CLASS, null))) {
+					checks.add(new ClassCheck(shape, path, cl));
+					classes.add(cl);
+					classPaths.add(path);
+					paths.add(path);
+				}
+				for (IRI dt: Models.objectIRIs(shapes.filter(propShape, SHACL.DATATYPE, null))) {
+					checks.add(new DatatypeCheck(shape, path, dt));
+					pathTypes.computeIfAbsent(path, k -> new HashSet<>()).add(dt);
+					paths.add(path);
+				}
+			}
+			for (IRI target: targets) {
+				byTarget.computeIfAbsent(target, k -> new ArrayList<>()).addAll(checks);
+				classes.add(target);
+			}
+		}
+		// values of these paths can be checked while parsing
+		for (Map.Entry<IRI,Set<IRI>> e: pathTypes.entrySet()) {
+			if (! classPaths.contains(e.getKey()) && e.getValue().size() == 1) {
+				datatypes.put(e.getKey(), e.getValue().iterator().next());
+			}
+		}
+		LOG.info("Compiled checks for " + byTarget.size() + " target classes, " + paths.size() + " paths");
+	}
+	
+	/**
+	 * Map each class to the classes used by the shapes its instances belong to, 
+	 * taking subclasses into account
+	 * 
+	 * @param superClasses map of a class to all its superclasses
+	 */
+	private void expand(Map<IRI,Set<IRI>> superClasses) {
+		Set<IRI> all = new HashSet<>(classes);
+		all.addAll(superClasses.keySet());
+		
+		for (IRI cl: all) {
+			Set<IRI> relevant = new HashSet<>();
+			if (classes.contains(cl)) {
+				relevant.add(cl);
+			}
+			for (IRI sup: superClasses.getOrDefault(cl, Collections.emptySet())) {
+				if (classes.contains(sup)) {
+					relevant.add(sup);
+				}
+			}
+			if (! relevant.isEmpty()) {
+				expand.put(cl, relevant);
+			}
+		}
+	}
+	
+	/**
+	 * Create a new, empty, index for the data triples relevant to the shapes
+	 * 
+	 * @return focus index
+	 */
+	FocusIndex newIndex() {
+		return new FocusIndex(expand, paths, datatypes);
+	}
+	
+	/**
+	 * Get the checks for a node with a given set of classes and a given path
+	 * 
+	 * @param types classes of the node
+	 * @param path property path
+	 * @return list of checks, possibly empty
+	 */
+	private List<Check> getChecks(Set<IRI> types, IRI path) {
+		// the same shape can target more than one of the types of a node
+		Set<Check> checks = new LinkedHashSet<>();
+		for (IRI type: types) {
+			for (Check check: byTarget.getOrDefault(type, Collections.emptyList())) {
+				if (check.path.equals(path)) {
+					checks.add(check);
+				}
+			}
+		}
+		return new ArrayList<>(checks);
+	}
+
+	/**
+	 * Evaluate the checks for a list of candidates, once all types are known
+	 * 
+	 * @param candidates candidates
+	 * @param types function returning the classes of a node, including superclasses
+	 * @return list of validation results
+	 */
+	List<Result> evaluate(List<FocusIndex.Candidate> candidates, Function<Value,Set<IRI>> types) {
+		List<Result> results = new ArrayList<>();
+		// sets of classes are shared between nodes, so the checks can be cached per set
+		Map<Set<IRI>,Map<IRI,List<Check>>> cache = new IdentityHashMap<>();
+		
+		for (FocusIndex.Candidate c: candidates) {
+			Set<IRI> focusTypes = types.apply(c.getFocus());
+			if (focusTypes.isEmpty()) {
+				continue;
+			}
+			List<Check> checks = cache.computeIfAbsent(focusTypes, k -> new HashMap<>())
+										.computeIfAbsent(c.getPath(), k -> getChecks(focusTypes, k));
+			for (Check check: checks) {
+				if (! check.conforms(c.getValue(), types)) {
+					results.add(new Result(c.getFocus(), c.getValue(), check));
+				}
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * Write validation results as a SHACL validation report
+	 * 
+	 * @param results validation results
+	 * @param handler RDF handler to write the report to
+	 */
+	void writeReport(Collection<Result> results, RDFHandler handler) {
+		handler.startRDF();
+		handler.handleNamespace(RDF.PREFIX, RDF.NAMESPACE);
+		handler.handleNamespace(SHACL.PREFIX, SHACL.NAMESPACE);
+		
+		// sorted, with fixed blank node labels, so reports of different runs can be compared
+		List<Result> sorted = new ArrayList<>(results);
+		sorted.sort(ORDER);
+		
+		BNode root = FAC.createBNode("report");
+		handler.handleStatement(FAC.createStatement(root, RDF.TYPE, SHACL.VALIDATION_REPORT));
+		handler.handleStatement(FAC.createStatement(root, SHACL.CONFORMS, FAC.createLiteral(results.isEmpty())));
+		
+		int i = 0;
+		for (Result r: sorted) {
+			BNode res = FAC.createBNode("result" + (++i));
+			handler.handleStatement(FAC.createStatement(root, SHACL.RESULT, res));
+			handler.handleStatement(FAC.createStatement(res, RDF.TYPE, SHACL.VALIDATION_RESULT));
+			handler.handleStatement(FAC.createStatement(res, SHACL.FOCUS_NODE, r.focus));
+			handler.handleStatement(FAC.createStatement(res, SHACL.RESULT_PATH, r.check.path));
+			handler.handleStatement(FAC.createStatement(res, SHACL.VALUE, r.value));
+			handler.handleStatement(FAC.createStatement(res, SHACL.RESULT_SEVERITY, SHACL.VIOLATION));
+			handler.handleStatement(FAC.createStatement(res, SHACL.SOURCE_SHAPE, r.check.shape));
+			handler.handleStatement(FAC.createStatement(res, SHACL.SOURCE_CONSTRAINT_COMPONENT, 
+															r.check.getComponent()));
+		}
+		handler.endRDF();
+	}
+	
+	/**
+	 * Validate a data file
+	 * 
+	 * @param data N-Triples or Turtle data file
+	 * @param report RDF handler to write the SHACL validation report to
+	 * @throws IOException 
+	 */
+	public void validate(Path data, RDFHandler report) throws IOException {
+		RDFFormat fmt = Rio.getParserFormatForFileName(data.toString()).orElse(RDFFormat.NTRIPLES);
+		RDFParser parser = Rio.createParser(fmt);
+		parser.getParserConfig().set(BasicParserSettings.VERIFY_URI_SYNTAX, false);
+		// keep blank node labels, so the report does not change between runs
+		parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+		
+		FocusIndex index = newIndex();
+		IndexHandler handler = new IndexHandler(index);
+		parser.setRDFHandler(handler);
+		
+		LOG.info("Validating " + data);
+		try (InputStream is = new BufferedInputStream(Files.newInputStream(data), 1 << 16)) {
+			parser.parse(is, "");
+		}
+		List<FocusIndex.Candidate> candidates = handler.getCandidates();
+		LOG.info("Processed " + handler.getCount() + " statements, " + index.size() + " typed nodes, " 
+					+ candidates.size() + " candidates");
+		
+		List<Result> results = evaluate(candidates, index::getTypes);
+		LOG.info("Found " + results.size() + " violations");
+		
+		writeReport(results, report);
+	}
+}
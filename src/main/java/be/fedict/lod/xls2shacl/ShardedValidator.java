@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
+import org.eclipse.rdf4j.rio.RDFParser;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.rio.helpers.BasicParserSettings;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Validate a large N-Triples file using multiple threads.
+ * 
+ * The file is split into byte ranges on line boundaries, each range is memory-mapped,
+ * parsed and indexed on a worker pool. 
+ * All workers add the types of nodes to the same (concurrent) index, and keep their own list
+ * of candidates that could violate a check. Once all ranges are indexed, the candidates 
+ * of each range are checked on the pool.
+ * 
+ * There is no merge step, so the heap needed is the same as for the single-threaded validator.
+ */
+public class ShardedValidator {
+	private final static Logger LOG = LoggerFactory.getLogger(ShardedValidator.class);
+	
+	private final static long MIN_CHUNK = 4L * 1024 * 1024;
+	private final static long MAX_CHUNK = Integer.MAX_VALUE - 1024 * 1024;
+	private final static int CHUNKS_PER_THREAD = 4;
+	
+	private final ShaclValidator validator;
+	private final int threads;
+	private final long minChunk;
+	
+	/**
+	 * Input stream reading from a (memory-mapped) byte buffer
+	 */
+	private static class BufferInputStream extends InputStream {
+		private final ByteBuffer buf;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param buf byte buffer
+		 */
+		BufferInputStream(ByteBuffer buf) {
+			this.buf = buf;
+		}
+		
+		@Override
+		public int read() {
+			return buf.hasRemaining() ? (buf.get() & 0xFF) : -1;
+		}
+		
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (! buf.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buf.remaining());
+			buf.get(b, off, n);
+			return n;
+		}
+		
+		@Override
+		public int available() {
+			return buf.remaining();
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param validator compiled shapes
+	 * @param threads number of worker threads
+	 */
+	public ShardedValidator(ShaclValidator validator, int threads) {
+		this(validator, threads, MIN_CHUNK);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param validator compiled shapes
+	 * @param threads number of worker threads
+	 * @param minChunk minimum size of a chunk in bytes
+	 */
+	ShardedValidator(ShaclValidator validator, int threads, long minChunk) {
+		this.validator = validator;
+		this.threads = Math.max(1, threads);
+		this.minChunk = minChunk;
+	}
+	
+	/**
+	 * Find the position right after the next end of line, starting from a given position
+	 * 
+	 * @param ch file channel
+	 * @param pos start position
+	 * @param size size of the file
+	 * @return position of the start of the next line, or size of the file
+	 * @throws IOException 
+	 */
+	private static long nextLine(FileChannel ch, long pos, long size) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(8192);
+		while (pos < size) {
+			buf.clear();
+			int n = ch.read(buf, pos);
+			if (n <= 0) {
+				break;
+			}
+			for (int i = 0; i < n; i++) {
+				if (buf.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += n;
+		}
+		return size;
+	}
+	
+	/**
+	 * Split the file into byte ranges ending on line boundaries
+	 * 
+	 * @param ch file channel
+	 * @return list of start and end positions
+	 * @throws IOException 
+	 */
+	private List<long[]> split(FileChannel ch) throws IOException {
+		long size = ch.size();
+		long chunk = Math.min(MAX_CHUNK, Math.max(minChunk, size / (threads * CHUNKS_PER_THREAD)));
+		
+		List<long[]> ranges = new ArrayList<>();
+		long start = 0;
+		while (start < size) {
+			long end = (size - start > chunk) ? nextLine(ch, start + chunk, size) : size;
+			ranges.add(new long[] { start, end });
+			start = end;
+		}
+		return ranges;
+	}
+	
+	/**
+	 * Parse a byte range and add it to the index
+	 * 
+	 * @param ch file channel
+	 * @param index shared index
+	 * @param start start position
+	 * @param end end position
+	 * @return candidates of this range
+	 * @throws IOException 
+	 */
+	private static List<FocusIndex.Candidate> index(FileChannel ch, FocusIndex index, long start, long end) 
+																			throws IOException {
+		MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		
+		ShaclValidator.IndexHandler handler = new ShaclValidator.IndexHandler(index);
+		RDFParser parser = Rio.createParser(RDFFormat.NTRIPLES);
+		// blank node labels must be identical across chunks
+		parser.getParserConfig().set(BasicParserSettings.PRESERVE_BNODE_IDS, true);
+		parser.getParserConfig().set(BasicParserSettings.VERIFY_URI_SYNTAX, false);
+		parser.setRDFHandler(handler);
+		parser.parse(new BufferInputStream(buf), "");
+		
+		return handler.getCandidates();
+	}
+	
+	/**
+	 * Run all tasks on the pool and wait for the results
+	 * 
+	 * @param <T> type of the result
+	 * @param pool executor service
+	 * @param tasks tasks
+	 * @return list of results, in the same order as the tasks
+	 * @throws IOException 
+	 */
+	private static <T> List<T> runAll(ExecutorService pool, List<Callable<T>> tasks) throws IOException {
+		List<T> results = new ArrayList<>(tasks.size());
+		try {
+			for (Future<T> f: pool.invokeAll(tasks)) {
+				results.add(f.get());
+			}
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Validation interrupted", ex);
+		} catch (ExecutionException ex) {
+			if (ex.getCause() instanceof IOException) {
+				throw (IOException) ex.getCause();
+			}
+			throw new IOException(ex.getCause());
+		}
+		return results;
+	}
+	
+	/**
+	 * Validate an N-Triples data file
+	 * 
+	 * @param data N-Triples file
+	 * @param report RDF handler to write the SHACL validation report to
+	 * @throws IOException 
+	 */
+	public void validate(Path data, RDFHandler report) throws IOException {
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		
+		try (FileChannel ch = FileChannel.open(data, StandardOpenOption.READ)) {
+			List<long[]> ranges = split(ch);
+			LOG.info("Validating " + data + " in " + ranges.size() + " chunks, " + threads + " threads");
+			
+			FocusIndex index = validator.newIndex();
+			List<Callable<List<FocusIndex.Candidate>>> parse = new ArrayList<>();
+			for (long[] range: ranges) {
+				parse.add(() -> index(ch, index, range[0], range[1]));
+			}
+			List<List<FocusIndex.Candidate>> candidates = runAll(pool, parse);
+			LOG.info("Indexed " + index.size() + " typed nodes");
+			
+			// types of focus and value nodes can come from any range
+			List<Callable<List<ShaclValidator.Result>>> check = new ArrayList<>();
+			for (List<FocusIndex.Candidate> part: candidates) {
+				check.add(() -> validator.evaluate(part, index::getTypes));
+			}
+			List<ShaclValidator.Result> results = new ArrayList<>();
+			for (List<ShaclValidator.Result> r: runAll(pool, check)) {
+				results.addAll(r);
+			}
+			LOG.info("Found " + results.size() + " violations");
+			
+			validator.writeReport(results, report);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+}
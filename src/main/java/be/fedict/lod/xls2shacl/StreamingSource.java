@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Read rows from an XLSX file by streaming the sheet XML.
+ * 
+ * Cells outside the column layout are skipped without decoding their value.
+ */
+class StreamingSource implements SheetSource {
+	private final OPCPackage pkg;
+	private final XSSFReader reader;
+	private final ReadOnlySharedStringsTable sst;
+	
+	/**
+	 * Row with the values of the cells of a layout
+	 */
+	private static class ValueRow implements SheetRow {
+		private final int rowNum;
+		private final Object[] values;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param rowNum row number
+		 * @param values string or numeric values, one per slot
+		 */
+		ValueRow(int rowNum, Object[] values) {
+			this.rowNum = rowNum;
+			this.values = values;
+		}
+		
+		@Override
+		public int getRowNum() {
+			return rowNum;
+		}
+		
+		@Override
+		public String getString(int slot) {
+			Object v = values[slot];
+			return (v != null) ? v.toString() : null;
+		}
+		
+		@Override
+		public Double getNumber(int slot) {
+			Object v = values[slot];
+			return (v instanceof Double) ? (Double) v : null;
+		}
+	}
+	
+	/**
+	 * SAX handler for the XML of a sheet
+	 */
+	private class SheetHandler extends DefaultHandler {
+		private final ColumnLayout layout;
+		private final Consumer<SheetRow> handler;
+		private final List<String> header = new ArrayList<>();
+		private final StringBuilder text = new StringBuilder();
+		
+		private Object[] values;
+		private int rowNum = -1;
+		private int column = -1;
+		private int slot = -1;
+		private String type = null;
+		private boolean collect = false;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param layout column layout
+		 * @param handler row handler
+		 */
+		SheetHandler(ColumnLayout layout, Consumer<SheetRow> handler) {
+			this.layout = layout;
+			this.handler = handler;
+			this.values = new Object[layout.size()];
+		}
+		
+		/**
+		 * Get the column position from a cell reference like "AB12"
+		 * 
+		 * @param ref cell reference
+		 * @return column position, starting at 0
+		 */
+		private int getColumn(String ref) {
+			int col = 0;
+			for (int i = 0; i < ref.length(); i++) {
+				char c = ref.charAt(i);
+				if (c < 'A' || c > 'Z') {
+					break;
+				}
+				col = col * 26 + (c - 'A' + 1);
+			}
+			return col - 1;
+		}
+		
+		/**
+		 * Decode the text of the current cell
+		 * 
+		 * @return string or double value, or null when empty
+		 */
+		private Object decode() {
+			String s = text.toString();
+			if (s.isEmpty()) {
+				return null;
+			}
+			if (type == null || type.equals("n")) {
+				try {
+					return Double.valueOf(s);
+				} catch (NumberFormatException nfe) {
+					return null;
+				}
+			}
+			switch(type) {
+				case "s":
+					String str = sst.getItemAt(Integer.parseInt(s)).getString();
+					return (str == null || str.isEmpty()) ? null : str;
+				case "b":
+					return String.valueOf(s.equals("1"));
+				case "e":
+					return null;
+				default:
+					return s;
+			}
+		}
+		
+		@Override
+		public void startElement(String uri, String localName, String qName, Attributes attrs) {
+			switch(localName) {
+				case "row":
+					String r = attrs.getValue("r");
+					rowNum = (r != null) ? Integer.parseInt(r) - 1 : rowNum + 1;
+					column = -1;
+					break;
+				case "c":
+					String ref = attrs.getValue("r");
+					column = (ref != null) ? getColumn(ref) : column + 1;
+					type = attrs.getValue("t");
+					// header cells are always needed, other cells only when in the layout
+					slot = (rowNum == 0) ? column : layout.getSlot(column);
+					text.setLength(0);
+					break;
+				case "v":
+				case "t":
+					collect = (slot >= 0);
+					break;
+				default:
+					break;
+			}
+		}
+		
+		@Override
+		public void endElement(String uri, String localName, String qName) {
+			switch(localName) {
+				case "v":
+				case "t":
+					collect = false;
+					break;
+				case "c":
+					if (slot < 0) {
+						break;
+					}
+					if (rowNum == 0) {
+						while (header.size() <= slot) {
+							header.add(null);
+						}
+						Object v = decode();
+						header.set(slot, (v != null) ? v.toString() : null);
+					} else {
+						values[slot] = decode();
+					}
+					break;
+				case "row":
+					if (rowNum == 0) {
+						layout.resolve(header);
+					} else {
+						handler.accept(new ValueRow(rowNum, values));
+					}
+					values = new Object[layout.size()];
+					break;
+				default:
+					break;
+			}
+		}
+		
+		@Override
+		public void characters(char[] ch, int start, int length) {
+			if (collect) {
+				text.append(ch, start, length);
+			}
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param fin XLSX file
+	 * @throws IOException 
+	 */
+	StreamingSource(File fin) throws IOException {
+		try {
+			pkg = OPCPackage.open(fin, PackageAccess.READ);
+			reader = new XSSFReader(pkg);
+			sst = new ReadOnlySharedStringsTable(pkg);
+		} catch (OpenXML4JException | SAXException ex) {
+			throw new IOException(ex);
+		}
+	}
+	
+	@Override
+	public boolean read(String name, ColumnLayout layout, Consumer<SheetRow> handler) throws IOException {
+		try {
+			XSSFReader.SheetIterator it = (XSSFReader.SheetIterator) reader.getSheetsData();
+			while (it.hasNext()) {
+				try (InputStream is = it.next()) {
+					if (! it.getSheetName().equals(name)) {
+						continue;
+					}
+					XMLReader parser = SAXHelper.newXMLReader();
+					parser.setContentHandler(new SheetHandler(layout, handler));
+					parser.parse(new InputSource(is));
+					return true;
+				}
+			}
+		} catch (OpenXML4JException | SAXException | ParserConfigurationException ex) {
+			throw new IOException(ex);
+		}
+		return false;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		pkg.revert();
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+
+/**
+ * Read rows from a workbook loaded in memory, using the POI usermodel.
+ */
+class UserModelSource implements SheetSource {
+	private final Workbook wb;
+	
+	/**
+	 * Row giving access to the cells of a layout
+	 */
+	private static class CellRow implements SheetRow {
+		private final Row row;
+		private final ColumnLayout layout;
+		
+		/**
+		 * Constructor
+		 * 
+		 * @param row spreadsheet row
+		 * @param layout column layout
+		 */
+		CellRow(Row row, ColumnLayout layout) {
+			this.row = row;
+			this.layout = layout;
+		}
+		
+		@Override
+		public int getRowNum() {
+			return row.getRowNum();
+		}
+		
+		/**
+		 * Get the cell in a slot
+		 * 
+		 * @param slot slot in the column layout
+		 * @return cell or null
+		 */
+		private Cell getCell(int slot) {
+			int col = layout.getColumn(slot);
+			return (col >= 0) ? row.getCell(col) : null;
+		}
+		
+		@Override
+		public String getString(int slot) {
+			return getString(getCell(slot));
+		}
+		
+		@Override
+		public Double getNumber(int slot) {
+			Cell cell = getCell(slot);
+			return (cell != null && getType(cell) == CellType.NUMERIC) ? cell.getNumericCellValue() : null;
+		}
+		
+		/**
+		 * Get type of the cell, or of the cached result when the cell contains a formula
+		 * 
+		 * @param cell cell
+		 * @return type
+		 */
+		private static CellType getType(Cell cell) {
+			CellType type = cell.getCellType();
+			return (type == CellType.FORMULA) ? cell.getCachedFormulaResultType() : type;
+		}
+		
+		/**
+		 * Get the value of a cell as string
+		 * 
+		 * @param cell cell
+		 * @return value or null when missing, blank or empty
+		 */
+		private static String getString(Cell cell) {
+			if (cell == null) {
+				return null;
+			}
+			switch(getType(cell)) {
+				case NUMERIC:
+					return String.valueOf(cell.getNumericCellValue());
+				case STRING:
+					String s = cell.getStringCellValue();
+					return s.isEmpty() ? null : s;
+				case BOOLEAN:
+					return String.valueOf(cell.getBooleanCellValue());
+				default:
+					return null;
+			}
+		}
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param fin workbook file
+	 * @throws IOException 
+	 */
+	UserModelSource(File fin) throws IOException {
+		try (InputStream is = new FileInputStream(fin)) {
+			wb = WorkbookFactory.create(is);
+		}
+	}
+	
+	@Override
+	public boolean read(String name, ColumnLayout layout, Consumer<SheetRow> handler) {
+		Sheet sheet = wb.getSheet(name);
+		if (sheet == null) {
+			return false;
+		}
+		for (Row row: sheet) {
+			if (row.getRowNum() == 0) {
+				List<String> header = new ArrayList<>();
+				for (int i = 0; i < row.getLastCellNum(); i++) {
+					header.add(CellRow.getString(row.getCell(i)));
+				}
+				layout.resolve(header);
+				continue;
+			}
+			handler.accept(new CellRow(row, layout));
+		}
+		return true;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		wb.close();
+	}
+}
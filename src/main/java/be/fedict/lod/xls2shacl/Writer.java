@@ -25,14 +25,16 @@
  */
 package be.fedict.lod.xls2shacl;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Namespace;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.LinkedHashModel;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
@@ -48,6 +50,7 @@ import org.eclipse.rdf4j.model.vocabulary.SHACL;
 import org.eclipse.rdf4j.model.vocabulary.SKOS;
 import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandler;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
 import org.eclipse.rdf4j.rio.helpers.BasicWriterSettings;
@@ -107,6 +110,15 @@ public abstract class Writer {
 		return m;
 	}
 	
+	/**
+	 * Get the predefined namespaces
+	 * 
+	 * @return set of namespaces
+	 */
+	public Set<Namespace> getNamespaces() {
+		return getModel("").getNamespaces();
+	}
+	
 	/**
 	 * Creates the triples for a SHACL/OWL/... file
 	 * 
@@ -116,36 +128,130 @@ public abstract class Writer {
 	public abstract Model createTriples(String name, Model m);
 	
 	/**
-	 * Write a file
+	 * Creates the triples and record a flight recorder event
+	 * 
+	 * @param name name file/ontology name
+	 * @param m input RDF model
+	 * @return triples
+	 */
+	public Model generate(String name, Model m) {
+		Events.GenerateEvent event = new Events.GenerateEvent();
+		event.begin();
+		
+		Model triples = createTriples(name, m);
+		
+		event.end();
+		if (event.shouldCommit()) {
+			event.writer = getClass().getSimpleName();
+			event.context = name;
+			event.input = m.size();
+			event.statements = triples.size();
+			event.commit();
+		}
+		return triples;
+	}
+	
+	/**
+	 * Record a flight recorder event for serializing triples
+	 * 
+	 * @param event event, already started
+	 * @param name name of the ontology
+	 * @param target file or graph
+	 * @param statements number of statements
+	 * @param bytes number of bytes
+	 */
+	private static void serialized(Events.SerializeEvent event, String name, Object target, 
+															int statements, long bytes) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.context = name;
+			event.target = target.toString();
+			event.statements = statements;
+			event.bytes = bytes;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Serialize triples as Turtle
+	 * 
+	 * @param triples triples to write
+	 * @param os output stream
+	 */
+	protected void serialize(Model triples, OutputStream os) {
+		RDFWriter writer = Rio.createWriter(RDFFormat.TURTLE, os);
+		writer.set(BasicWriterSettings.INLINE_BLANK_NODES, true);
+		//writer.set(BasicWriterSettings.PRETTY_PRINT, true);
+		Rio.write(triples, writer);
+	}
+	
+	/**
+	 * Get the path of the file for a given name
+	 * 
+	 * @param dir (sub)directory
+	 * @param name name of the file
+	 * @return path
+	 */
+	protected Path getPath(Path dir, String name) {
+		return Paths.get(dir.toFile().toString(), name.toLowerCase() + ".ttl");
+	}
+	
+	/**
+	 * Serialize a file into a buffer and let the pipeline write it to disk
 	 * 
 	 * @param dir (sub)directory
 	 * @param name name of the file
 	 * @param m model to write
+	 * @param pipeline output pipeline
 	 * @throws IOException 
 	 */
-	public void writeFile(Path dir, String name, Model m) throws IOException {
-		Model triples = createTriples(name, m);
+	public void writeFile(Path dir, String name, Model m, OutputPipeline pipeline) throws IOException {
+		Model triples = generate(name, m);
 		
 		if (triples.isEmpty()) {
 			LOG.info("Nothing to write for " + name);
 			return;
 		}
-		Path p = Paths.get(dir.toFile().toString(), name.toLowerCase() + ".ttl");
+		Path p = getPath(dir, name);
 		LOG.info("Writing to " + p);
 		
-		File subdir = dir.toFile();
-		if (! subdir.exists()) {
-			LOG.info("Creating subdir");
-			subdir.mkdirs();
+		OutputPipeline.Buffer buf = pipeline.take();
+		Events.SerializeEvent event = new Events.SerializeEvent();
+		event.begin();
+		try {
+			serialize(triples, buf);
+		} catch (RuntimeException e) {
+			pipeline.release(buf);
+			throw e;
+		}
+		serialized(event, name, p, triples.size(), buf.size());
+		pipeline.submit(p, buf);
+	}
+	
+	/**
+	 * Write the triples as a named graph to an RDF handler
+	 * 
+	 * @param handler RDF handler, already started
+	 * @param graph name of the graph
+	 * @param name name of the ontology
+	 * @param m model to write
+	 */
+	public void writeGraph(RDFHandler handler, Resource graph, String name, Model m) {
+		Model triples = generate(name, m);
+		
+		if (triples.isEmpty()) {
+			LOG.info("Nothing to write for " + name);
+			return;
 		}
+		LOG.info("Writing graph " + graph);
 		
-		try (OutputStream os = Files.newOutputStream(p, StandardOpenOption.CREATE, 
-														StandardOpenOption.TRUNCATE_EXISTING,
-														StandardOpenOption.WRITE)) {
-			RDFWriter writer = Rio.createWriter(RDFFormat.TURTLE, os);
-			writer.set(BasicWriterSettings.INLINE_BLANK_NODES, true);
-			//writer.set(BasicWriterSettings.PRETTY_PRINT, true);
-			Rio.write(triples, writer);
+		Events.SerializeEvent event = new Events.SerializeEvent();
+		event.begin();
+		for (Statement st: triples) {
+			handler.handleStatement(
+				FAC.createStatement(st.getSubject(), st.getPredicate(), st.getObject(), graph));
 		}
+		// bytes are not known when streaming to a shared handler
+		serialized(event, name, graph, triples.size(), 0);
 	}
 }
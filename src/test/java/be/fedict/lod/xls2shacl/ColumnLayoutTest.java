@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for resolving the column layout from the header row
+ */
+public class ColumnLayoutTest {
+	private final static String[] NAMES = { "ID", "Name", "LabelNL" };
+	
+	private static ColumnLayout layout() {
+		return new ColumnLayout(NAMES, new int[] { 0, 1, 2 });
+	}
+	
+	@Test
+	public void testDefaults() {
+		ColumnLayout layout = layout();
+		assertEquals(3, layout.size());
+		assertEquals(1, layout.getColumn(1));
+		assertEquals(2, layout.getSlot(2));
+		assertEquals(-1, layout.getSlot(3));
+		assertEquals(-1, layout.getSlot(-1));
+	}
+	
+	@Test
+	public void testReordered() {
+		ColumnLayout layout = layout();
+		layout.resolve(Arrays.asList("Comment", "label nl", null, "name", "Id"));
+		assertEquals(4, layout.getColumn(0));
+		assertEquals(3, layout.getColumn(1));
+		assertEquals(1, layout.getColumn(2));
+		assertEquals(0, layout.getSlot(4));
+		assertEquals(-1, layout.getSlot(0));
+	}
+	
+	@Test
+	public void testMissingHeader() {
+		ColumnLayout layout = layout();
+		// "Name" is missing, its default position must not be read
+		layout.resolve(Arrays.asList("ID", "Something", "LabelNL"));
+		assertEquals(0, layout.getColumn(0));
+		assertEquals(-1, layout.getColumn(1));
+		assertEquals(2, layout.getColumn(2));
+		assertEquals(-1, layout.getSlot(1));
+	}
+	
+	@Test
+	public void testMissingHeaderOccupied() {
+		ColumnLayout layout = layout();
+		// "Name" is missing and its default position is taken by "LabelNL"
+		layout.resolve(Arrays.asList("ID", "LabelNL"));
+		assertEquals(0, layout.getColumn(0));
+		assertEquals(-1, layout.getColumn(1));
+		assertEquals(1, layout.getColumn(2));
+		assertEquals(2, layout.getSlot(1));
+		assertEquals(-1, layout.getSlot(2));
+	}
+	
+	@Test
+	public void testUnknownHeaderRow() {
+		ColumnLayout layout = layout();
+		layout.resolve(Arrays.asList("Nr", "Naam", "Label"));
+		assertEquals(0, layout.getColumn(0));
+		assertEquals(1, layout.getColumn(1));
+		assertEquals(2, layout.getColumn(2));
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the IRI normalizer
+ */
+public class IriNormalizerTest {
+	private IriNormalizer norm;
+	
+	@Before
+	public void setUp() {
+		Map<String,String> prefixes = new HashMap<>();
+		prefixes.put("dcterms", "http://purl.org/dc/terms/");
+		norm = new IriNormalizer("http://vocab.belgif.be", prefixes);
+	}
+	
+	private void assertIRI(String expected, String raw) {
+		IriNormalizer.Result res = norm.normalize(raw);
+		assertNull(res.getError());
+		assertEquals(expected, res.getIRI().stringValue());
+	}
+	
+	private void assertError(String expected, String raw) {
+		IriNormalizer.Result res = norm.normalize(raw);
+		assertNull(res.getIRI());
+		assertEquals(expected, res.getError());
+	}
+	
+	@Test
+	public void testAbsolute() {
+		assertIRI("http://example.com/a", "http://example.com/a");
+		assertIRI("http://example.com/a", " <http://example.com/a> ");
+		assertIRI("urn:uuid:1234", "urn:uuid:1234");
+	}
+	
+	@Test
+	public void testExpand() {
+		assertIRI("http://purl.org/dc/terms/title", "dcterms:title");
+		assertIRI("http://vocab.belgif.be/ns/test#A", "/ns/test#A");
+	}
+	
+	@Test
+	public void testRejected() {
+		assertError("Empty", null);
+		assertError("Empty", " <> ");
+		assertError("No valid scheme", "just text");
+		assertError("No valid scheme", "1http://example.com");
+		assertError("Nothing after scheme", "unknown:");
+		assertError("Invalid character at position 20", "http://example.com/a b");
+		assertError("No host", "http:/example.com");
+		assertError("No host", "https://");
+	}
+	
+	@Test
+	public void testCached() {
+		assertEquals(norm.normalize("dcterms:title"), norm.normalize("dcterms:title"));
+	}
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.vocabulary.OWL;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.model.vocabulary.SKOS;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for the single-stream TriG / N-Quads output
+ */
+public class MainTest {
+	private final static ValueFactory FAC = SimpleValueFactory.getInstance();
+	
+	private final static IRI G1 = FAC.createIRI("http://fedict.be/graph/one");
+	private final static IRI G2 = FAC.createIRI("http://fedict.be/graph/two");
+	
+	/**
+	 * Create a model with two ontologies, each in its own context
+	 * 
+	 * @return model
+	 */
+	private static Model model() {
+		Model m = new LinkedHashModel();
+		for (IRI g: Arrays.asList(G1, G2)) {
+			IRI cl = FAC.createIRI("http://vocab.belgif.be/ns/" + g.getLocalName() + "#Thing");
+			m.add(cl, RDF.TYPE, RDFS.CLASS, g);
+			m.add(cl, SKOS.ALT_LABEL, FAC.createLiteral("Thing", "en"), g);
+		}
+		return m;
+	}
+	
+	/**
+	 * Write the model as quads and parse the result
+	 * 
+	 * @param format quads format
+	 * @return parsed model
+	 * @throws IOException 
+	 */
+	private static Model roundTrip(RDFFormat format) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		Main.writeQuads(bos, format, model());
+		return Rio.parse(new ByteArrayInputStream(bos.toByteArray()), "", format);
+	}
+	
+	/**
+	 * Check that every statement is in one of the contexts of the input, 
+	 * and that each context has SHACL and OWL statements
+	 * 
+	 * @param m parsed model
+	 */
+	private static void assertGraphs(Model m) {
+		assertEquals(new HashSet<Resource>(Arrays.asList(G1, G2)), m.contexts());
+		for (IRI g: Arrays.asList(G1, G2)) {
+			assertFalse(m.filter(null, RDF.TYPE, SHACL.NODE_SHAPE, g).isEmpty());
+			assertFalse(m.filter(null, RDF.TYPE, OWL.ONTOLOGY, g).isEmpty());
+		}
+	}
+	
+	@Test
+	public void testTriG() throws IOException {
+		assertGraphs(roundTrip(RDFFormat.TRIG));
+	}
+	
+	@Test
+	public void testNQuads() throws IOException {
+		assertGraphs(roundTrip(RDFFormat.NQUADS));
+	}
+	
+	@Test
+	public void testQuadsFormat() {
+		assertEquals(RDFFormat.NQUADS, Main.getQuadsFormat("nquads", "out.trig"));
+		assertEquals(RDFFormat.TRIG, Main.getQuadsFormat("TriG", "out.nq"));
+		assertEquals(RDFFormat.NQUADS, Main.getQuadsFormat(null, "out.nq"));
+		assertEquals(RDFFormat.TRIG, Main.getQuadsFormat(null, "out.trig"));
+		// formats without contexts and unknown formats fall back to TriG
+		assertEquals(RDFFormat.TRIG, Main.getQuadsFormat(null, "out.ttl"));
+		assertEquals(RDFFormat.TRIG, Main.getQuadsFormat("xml", "-"));
+	}
+}
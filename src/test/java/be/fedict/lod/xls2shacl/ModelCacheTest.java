@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.DCTERMS;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the Binary RDF model cache
+ */
+public class ModelCacheTest {
+	private final static ValueFactory FAC = SimpleValueFactory.getInstance();
+	
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+	
+	private File workbook;
+	
+	@Before
+	public void setUp() throws IOException {
+		workbook = tmp.newFile("workbook.xlsx");
+		Files.write(workbook.toPath(), "not really a workbook".getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void testRoundTrip() throws IOException {
+		IRI g1 = FAC.createIRI("http://fedict.be/graph/one");
+		IRI g2 = FAC.createIRI("http://fedict.be/graph/two");
+		IRI cl = FAC.createIRI("http://vocab.belgif.be/ns/one#Thing");
+		
+		Model m = new LinkedHashModel();
+		m.add(cl, RDF.TYPE, RDFS.CLASS, g1);
+		m.add(cl, DCTERMS.TITLE, FAC.createLiteral("Ding", "nl"), g1);
+		m.add(cl, RDF.TYPE, RDFS.CLASS, g2);
+		
+		ModelCache cache = new ModelCache(tmp.getRoot().toPath().resolve("cache"));
+		String key = ModelCache.key(workbook, false, "Standard", "Datamodels");
+		assertNull(cache.load(key));
+		
+		cache.store(key, m);
+		Model loaded = cache.load(key);
+		assertEquals(m.contexts(), loaded.contexts());
+		assertTrue(Models.isomorphic(m.filter(null, null, null, g1), loaded.filter(null, null, null, g1)));
+		assertTrue(Models.isomorphic(m.filter(null, null, null, g2), loaded.filter(null, null, null, g2)));
+	}
+	
+	@Test
+	public void testKey() throws IOException {
+		String key = ModelCache.key(workbook, false, "Standard", "Datamodels");
+		assertEquals(key, ModelCache.key(workbook, false, "Standard", "Datamodels"));
+		
+		assertNotEquals(key, ModelCache.key(workbook, true, "Standard", "Datamodels"));
+		assertNotEquals(key, ModelCache.key(workbook, false, "Standard", "Mappings"));
+		assertNotEquals(key, ModelCache.key(workbook, false, "StandardDatamodels", ""));
+		
+		Files.write(workbook.toPath(), "changed".getBytes(StandardCharsets.UTF_8));
+		assertNotEquals(key, ModelCache.key(workbook, false, "Standard", "Datamodels"));
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the output pipeline
+ */
+public class OutputPipelineTest {
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+	
+	private static byte[] bytes(String s) {
+		return s.getBytes(StandardCharsets.UTF_8);
+	}
+	
+	@Test(timeout = 10000)
+	public void testWrite() throws IOException {
+		Path file = tmp.getRoot().toPath().resolve("sub").resolve("out.ttl");
+		try (OutputPipeline pipeline = new OutputPipeline(1)) {
+			for (int i = 0; i < 5; i++) {
+				OutputPipeline.Buffer buf = pipeline.take();
+				buf.write(bytes("content " + i));
+				pipeline.submit(file, buf);
+			}
+		}
+		assertArrayEquals(bytes("content 4"), Files.readAllBytes(file));
+	}
+	
+	@Test(timeout = 10000)
+	public void testFailureDoesNotStopOthers() throws IOException {
+		// parent is a regular file, so the directory cannot be created
+		Path bad = tmp.newFile("blocker").toPath().resolve("out.ttl");
+		Path good = tmp.getRoot().toPath().resolve("good.ttl");
+		
+		OutputPipeline pipeline = new OutputPipeline(1);
+		for (int i = 0; i < 3; i++) {
+			OutputPipeline.Buffer buf = pipeline.take();
+			buf.write(bytes("bad " + i));
+			pipeline.submit(bad, buf);
+		}
+		OutputPipeline.Buffer buf = pipeline.take();
+		buf.write(bytes("good"));
+		pipeline.submit(good, buf);
+		
+		try {
+			pipeline.close();
+			fail("Expected write error");
+		} catch (IOException ioe) {
+			assertEquals(3, ioe.getSuppressed().length);
+		}
+		assertArrayEquals(bytes("good"), Files.readAllBytes(good));
+	}
+}
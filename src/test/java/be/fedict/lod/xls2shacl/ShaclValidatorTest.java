@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.rdf4j.model.BNode;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.model.util.Models;
+import org.eclipse.rdf4j.model.vocabulary.OWL;
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.model.vocabulary.RDFS;
+import org.eclipse.rdf4j.model.vocabulary.SHACL;
+import org.eclipse.rdf4j.model.vocabulary.SKOS;
+import org.eclipse.rdf4j.model.vocabulary.XMLSchema;
+import org.eclipse.rdf4j.rio.helpers.StatementCollector;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the compiled SHACL validator
+ */
+public class ShaclValidatorTest {
+	private final static ValueFactory FAC = SimpleValueFactory.getInstance();
+	private final static String NS = "http://vocab.belgif.be/ns/test#";
+	
+	private final static IRI PERSON = FAC.createIRI(NS, "Person");
+	private final static IRI ADDRESS = FAC.createIRI(NS, "Address");
+	private final static IRI HAS_ADDRESS = FAC.createIRI(NS, "address");
+	private final static IRI NAME = FAC.createIRI(NS, "name");
+	private final static IRI EMPLOYEE = FAC.createIRI(NS, "Employee");
+	private final static IRI OFFICE = FAC.createIRI(NS, "Office");
+	
+	private final static String TYPE = "<" + RDF.TYPE + ">";
+	
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+	
+	private ShaclValidator validator;
+	
+	/**
+	 * Create the shapes in the same way as the conversion does
+	 * 
+	 * @return shapes
+	 */
+	static Model shapes() {
+		Model m = new LinkedHashModel();
+		m.add(PERSON, RDF.TYPE, RDFS.CLASS);
+		m.add(PERSON, SKOS.ALT_LABEL, FAC.createLiteral("Person", "en"));
+		m.add(ADDRESS, RDF.TYPE, RDFS.CLASS);
+		m.add(ADDRESS, SKOS.ALT_LABEL, FAC.createLiteral("Address", "en"));
+		m.add(HAS_ADDRESS, RDF.TYPE, RDF.PROPERTY);
+		m.add(HAS_ADDRESS, RDFS.DOMAIN, PERSON);
+		m.add(HAS_ADDRESS, RDFS.RANGE, ADDRESS);
+		m.add(NAME, RDF.TYPE, RDF.PROPERTY);
+		m.add(NAME, RDFS.DOMAIN, ADDRESS);
+		m.add(NAME, OWL.DATATYPEPROPERTY, XMLSchema.STRING);
+		
+		return new ShaclWriter().createTriples("test", m);
+	}
+	
+	/**
+	 * Write data to a temporary file
+	 * 
+	 * @param name file name
+	 * @param lines lines of data
+	 * @return file
+	 * @throws IOException 
+	 */
+	private File data(String name, String... lines) throws IOException {
+		File f = tmp.newFile(name);
+		Files.write(f.toPath(), String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+		return f;
+	}
+	
+	/**
+	 * Validate a file and collect the report
+	 * 
+	 * @param f data file
+	 * @return report
+	 * @throws IOException 
+	 */
+	private Model validate(File f) throws IOException {
+		StatementCollector collector = new StatementCollector();
+		validator.validate(f.toPath(), collector);
+		return new LinkedHashModel(collector.getStatements());
+	}
+	
+	/**
+	 * Get the value of sh:conforms
+	 * 
+	 * @param report validation report
+	 * @return boolean
+	 */
+	private static boolean conforms(Model report) {
+		return Models.objectLiteral(report.filter(null, SHACL.CONFORMS, null))
+						.map(Literal::booleanValue).orElseThrow(IllegalStateException::new);
+	}
+	
+	@Before
+	public void setUp() {
+		validator = new ShaclValidator(shapes());
+	}
+	
+	@Test
+	public void testConforms() throws IOException {
+		File f = data("ok.nt",
+			"<http://ex/p> " + TYPE + " <" + PERSON + "> .",
+			"<http://ex/p> <" + HAS_ADDRESS + "> <http://ex/a> .",
+			"<http://ex/a> " + TYPE + " <" + ADDRESS + "> .",
+			"<http://ex/a> <" + NAME + "> \"Street\" .");
+		Model report = validate(f);
+		
+		assertTrue(conforms(report));
+		assertTrue(report.filter(null, SHACL.RESULT, null).isEmpty());
+	}
+	
+	@Test
+	public void testClassViolation() throws IOException {
+		File f = data("class.nt",
+			"<http://ex/p> " + TYPE + " <" + PERSON + "> .",
+			"<http://ex/p> <" + HAS_ADDRESS + "> <http://ex/a> .");
+		Model report = validate(f);
+		
+		assertFalse(conforms(report));
+		assertEquals(FAC.createIRI("http://ex/p"), 
+			Models.object(report.filter(null, SHACL.FOCUS_NODE, null)).orElse(null));
+		assertEquals(HAS_ADDRESS, Models.object(report.filter(null, SHACL.RESULT_PATH, null)).orElse(null));
+		assertEquals(SHACL.CLASS_CONSTRAINT_COMPONENT, 
+			Models.object(report.filter(null, SHACL.SOURCE_CONSTRAINT_COMPONENT, null)).orElse(null));
+	}
+	
+	@Test
+	public void testDatatypeViolation() throws IOException {
+		File f = data("datatype.ttl",
+			"<http://ex/a> a <" + ADDRESS + "> ;",
+			"  <" + NAME + "> \"Street\", \"Straat\"@nl, 42 .");
+		Model report = validate(f);
+		
+		Set<Value> values = report.filter(null, SHACL.VALUE, null).objects();
+		assertEquals(2, values.size());
+		assertTrue(values.contains(FAC.createLiteral("Straat", "nl")));
+		assertTrue(values.contains(FAC.createLiteral("42", XMLSchema.INTEGER)));
+	}
+	
+	@Test
+	public void testTypeAfterValue() throws IOException {
+		File f = data("order.nt",
+			"<http://ex/p> <" + HAS_ADDRESS + "> _:a .",
+			"_:a <" + NAME + "> \"Street\" .",
+			"<http://ex/p> " + TYPE + " <" + PERSON + "> .",
+			"_:a " + TYPE + " <" + ADDRESS + "> .");
+		
+		assertTrue(conforms(validate(f)));
+	}
+	
+	@Test
+	public void testUntargetedIgnored() throws IOException {
+		File f = data("untargeted.nt",
+			"<http://ex/p> <" + HAS_ADDRESS + "> <http://ex/a> .",
+			"<http://ex/a> <" + NAME + "> \"Straat\"@nl .");
+		
+		assertTrue(conforms(validate(f)));
+	}
+	
+	@Test
+	public void testSubClasses() throws IOException {
+		Map<IRI,Set<IRI>> superClasses = new HashMap<>();
+		superClasses.put(EMPLOYEE, Collections.singleton(PERSON));
+		superClasses.put(OFFICE, Collections.singleton(ADDRESS));
+		validator = new ShaclValidator(shapes(), superClasses);
+		
+		File f = data("subclass.nt",
+			"<http://ex/e> " + TYPE + " <" + EMPLOYEE + "> .",
+			"<http://ex/e> <" + HAS_ADDRESS + "> <http://ex/o> .",
+			"<http://ex/e> <" + HAS_ADDRESS + "> <http://ex/x> .",
+			"<http://ex/o> " + TYPE + " <" + OFFICE + "> .");
+		Model report = validate(f);
+		
+		// employee is targeted as a person, office is accepted as an address
+		assertEquals(1, report.filter(null, SHACL.RESULT, null).size());
+		assertEquals(FAC.createIRI("http://ex/x"), 
+			Models.object(report.filter(null, SHACL.VALUE, null)).orElse(null));
+	}
+	
+	@Test
+	public void testSourceShape() throws IOException {
+		File f = data("shape.nt",
+			"<http://ex/p> " + TYPE + " <" + PERSON + "> .",
+			"<http://ex/p> <" + HAS_ADDRESS + "> <http://ex/a> .");
+		Value shape = Models.object(validate(f).filter(null, SHACL.SOURCE_SHAPE, null)).orElse(null);
+		
+		// blank node property shape, with the same label for shapes generated in another run
+		assertTrue(shape instanceof BNode);
+		validator = new ShaclValidator(shapes());
+		assertEquals(shape, Models.object(validate(f).filter(null, SHACL.SOURCE_SHAPE, null)).orElse(null));
+	}
+}
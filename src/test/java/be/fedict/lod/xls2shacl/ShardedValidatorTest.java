@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the sharded validator, which must give the same report as the single-threaded one
+ */
+public class ShardedValidatorTest {
+	private final static String NS = "http://vocab.belgif.be/ns/test#";
+	private final static String TYPE = "<" + RDF.TYPE + ">";
+	
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+	
+	private ShaclValidator validator;
+	private Path data;
+	
+	@Before
+	public void setUp() throws IOException {
+		validator = new ShaclValidator(ShaclValidatorTest.shapes());
+		
+		// values and types of the same (blank) node end up in different chunks
+		data = tmp.newFile("data.nt").toPath();
+		try (PrintWriter w = new PrintWriter(Files.newBufferedWriter(data))) {
+			for (int i = 0; i < 500; i++) {
+				w.println("<http://ex/p" + i + "> " + TYPE + " <" + NS + "Person> .");
+				w.println("<http://ex/p" + i + "> <" + NS + "address> _:a" + i + " .");
+				w.println("_:a" + i + " <" + NS + "name> " + ((i % 7 == 0) ? "\"7\"@en" : "\"x\"") + " .");
+			}
+			for (int i = 0; i < 500; i += 3) {
+				w.println("_:a" + i + " " + TYPE + " <" + NS + "Address> .");
+			}
+		}
+	}
+	
+	/**
+	 * Validate and serialize the report as N-Triples
+	 * 
+	 * @param threads number of threads, 0 for the single-threaded validator
+	 * @param chunk minimum chunk size
+	 * @return report as string
+	 * @throws IOException 
+	 */
+	private String report(int threads, long chunk) throws IOException {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		if (threads == 0) {
+			validator.validate(data, Rio.createWriter(RDFFormat.NTRIPLES, bos));
+		} else {
+			new ShardedValidator(validator, threads, chunk).validate(data, Rio.createWriter(RDFFormat.NTRIPLES, bos));
+		}
+		return new String(bos.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	@Test
+	public void testSameAsSingleThread() throws IOException {
+		String expected = report(0, 0);
+		assertTrue(expected.contains("ClassConstraintComponent"));
+		assertTrue(expected.contains("DatatypeConstraintComponent"));
+		
+		assertEquals(expected, report(1, 1024));
+		assertEquals(expected, report(4, 1024));
+		assertEquals(expected, report(3, 1));
+		assertEquals(expected, report(2, Long.MAX_VALUE));
+	}
+}
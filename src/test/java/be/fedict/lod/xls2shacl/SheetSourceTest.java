@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018, FPS BOSA DG DT
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * * Redistributions of source code must retain the above copyright notice, this
+ *   list of conditions and the following disclaimer.
+ * * Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package be.fedict.lod.xls2shacl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests that the streaming and the usermodel sheet sources return the same rows
+ */
+public class SheetSourceTest {
+	private final static String[] NAMES = { "ID", "Name", "Value", "Flag" };
+	
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+	
+	/**
+	 * Fill a sheet with header and data rows, with columns in another order than the layout
+	 * 
+	 * @param wb workbook
+	 */
+	private static void fill(Workbook wb) {
+		Sheet sheet = wb.createSheet("Data");
+		wb.createSheet("Other").createRow(0).createCell(0).setCellValue("Name");
+		
+		Row header = sheet.createRow(0);
+		header.createCell(0).setCellValue("Comment");
+		header.createCell(1).setCellValue("Name");
+		header.createCell(2).setCellValue("id");
+		header.createCell(4).setCellValue("Value");
+		header.createCell(27).setCellValue("Flag");
+		
+		Row r1 = sheet.createRow(1);
+		r1.createCell(0).setCellValue("not needed");
+		r1.createCell(1).setCellValue("Street");
+		r1.createCell(2).setCellValue(1);
+		r1.createCell(4).setCellValue(4.5);
+		r1.createCell(27).setCellValue(true);
+		
+		// row 2 is missing, blank and empty cells
+		Row r3 = sheet.createRow(3);
+		r3.createCell(1).setCellValue("");
+		r3.createCell(2).setCellValue(3);
+		r3.createCell(4);
+		
+		Row r4 = sheet.createRow(4);
+		r4.createCell(1).setCellFormula("\"Formula\"&\" string\"");
+		r4.createCell(2).setCellFormula("2+2");
+		r4.createCell(4).setCellValue("Café, ümlaut & <tag>");
+		r4.createCell(27).setCellValue(false);
+	}
+	
+	/**
+	 * Write a workbook to a temporary file
+	 * 
+	 * @param wb workbook
+	 * @param name file name
+	 * @return file
+	 * @throws IOException 
+	 */
+	private File write(Workbook wb, String name) throws IOException {
+		wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+		File f = tmp.newFile(name);
+		try (OutputStream os = Files.newOutputStream(f.toPath())) {
+			wb.write(os);
+		}
+		wb.close();
+		return f;
+	}
+	
+	/**
+	 * Read the rows of a sheet as strings
+	 * 
+	 * @param src sheet source
+	 * @return list of rows
+	 * @throws IOException 
+	 */
+	private static List<String> read(SheetSource src) throws IOException {
+		List<String> rows = new ArrayList<>();
+		ColumnLayout layout = new ColumnLayout(NAMES, new int[] { 0, 1, 2, 3 });
+		try (SheetSource s = src) {
+			assertFalse(s.read("Missing", layout, r -> rows.add("unexpected")));
+			s.read("Data", layout, r -> {
+				StringBuilder sb = new StringBuilder().append(r.getRowNum());
+				for (int i = 0; i < NAMES.length; i++) {
+					sb.append('|').append(r.getString(i)).append('|').append(r.getNumber(i));
+				}
+				rows.add(sb.toString());
+			});
+		}
+		return rows;
+	}
+	
+	/**
+	 * Check that both sources return the expected rows
+	 * 
+	 * @param f workbook file
+	 * @throws IOException 
+	 */
+	private static void assertSameRows(File f) throws IOException {
+		List<String> expected = read(new UserModelSource(f));
+		assertEquals(Arrays.asList(
+			"1|1.0|1.0|Street|null|4.5|4.5|true|null",
+			"3|3.0|3.0|null|null|null|null|null|null",
+			"4|4.0|4.0|Formula string|null|Café, ümlaut & <tag>|null|false|null"), expected);
+		assertEquals(expected, read(new StreamingSource(f)));
+	}
+	
+	@Test
+	public void testSharedStrings() throws IOException {
+		XSSFWorkbook wb = new XSSFWorkbook();
+		fill(wb);
+		// rich text is stored as runs in the shared strings table
+		XSSFFont bold = wb.createFont();
+		bold.setBold(true);
+		XSSFRichTextString rich = new XSSFRichTextString("Street");
+		rich.applyFont(0, 3, bold);
+		wb.getSheet("Data").getRow(1).getCell(1).setCellValue(rich);
+		
+		assertSameRows(write(wb, "shared.xlsx"));
+	}
+	
+	@Test
+	public void testInlineStrings() throws IOException {
+		// the streaming workbook writes inline strings
+		SXSSFWorkbook wb = new SXSSFWorkbook();
+		fill(wb);
+		assertSameRows(write(wb, "inline.xlsx"));
+		wb.dispose();
+	}
+}